@@ -5,11 +5,17 @@ const sql = neon(process.env.DATABASE_URL!)
 
 export async function GET() {
   try {
+    // Newest 100 messages, returned oldest first. Older pages come from the Java server's
+    // keyset-paged GET /api/rooms/{roomId}/messages?before=<cursor>
     const messages = await sql`
       SELECT id, username, content, timestamp, is_anonymous
-      FROM messages 
-      ORDER BY timestamp ASC 
-      LIMIT 100
+      FROM (
+        SELECT id, username, content, timestamp, is_anonymous
+        FROM messages
+        ORDER BY timestamp DESC, id DESC
+        LIMIT 100
+      ) recent
+      ORDER BY timestamp ASC, id ASC
     `
 
     const formattedMessages = messages.map((msg) => ({
@@ -0,0 +1,128 @@
+package com.chatapp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Last-seen times of this node's users, kept in memory and written to users.last_active in
+// batches. Joins and messages only update the in-memory entry; every flush interval the
+// entries that changed go out as one upsert for users not yet stored and one
+// UPDATE ... FROM (VALUES ...) for the rest, both keyed on the user id. Users idle longer
+// than user-timeout-minutes are dropped from memory once flushed.
+@Component
+public class ActivityTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(ActivityTracker.class);
+
+    @Value("${app.chat.activity.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    @Value("${app.chat.user-timeout-minutes:30}")
+    private int userTimeoutMinutes;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    private final Map<String, Activity> activity = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-activity");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+        flush();
+    }
+
+    public void touch(ChatWebSocketHandler.User user) {
+        // By id: anonymous users can share a display name
+        Activity entry = activity.computeIfAbsent(user.id(),
+            id -> new Activity(id, user.username(), user.isAnonymous()));
+        entry.lastSeenMillis = System.currentTimeMillis();
+        entry.dirty = true;
+    }
+
+    public int trackedCount() {
+        return activity.size();
+    }
+
+    public void flush() {
+        List<DatabaseService.UserActivity> inserts = new ArrayList<>();
+        List<DatabaseService.UserActivity> updates = new ArrayList<>();
+        List<Activity> flushed = new ArrayList<>();
+        for (Activity entry : activity.values()) {
+            if (!entry.dirty) {
+                continue;
+            }
+            // Cleared before reading lastSeenMillis, so a touch racing with the flush is
+            // picked up by the next one
+            entry.dirty = false;
+            DatabaseService.UserActivity row = new DatabaseService.UserActivity(
+                entry.id, entry.username, entry.anonymous, toLocalDateTime(entry.lastSeenMillis));
+            (entry.stored ? updates : inserts).add(row);
+            flushed.add(entry);
+        }
+
+        try {
+            // A rejected row stays unstored and is tried again once the user is next seen
+            Set<String> rejected = databaseService.saveUsers(inserts);
+            databaseService.updateUserActivity(updates);
+            for (Activity entry : flushed) {
+                entry.stored = entry.stored || !rejected.contains(entry.id);
+            }
+        } catch (SQLException e) {
+            log.warn("Flushing activity of {} users failed; retrying next interval", flushed.size(), e);
+            for (Activity entry : flushed) {
+                entry.dirty = true;
+            }
+        }
+
+        long idleBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(userTimeoutMinutes);
+        activity.values().removeIf(entry -> !entry.dirty && entry.lastSeenMillis < idleBefore);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    // Written on the WebSocket threads, read by the flusher
+    private static final class Activity {
+        private final String id;
+        private final String username;
+        private final boolean anonymous;
+        private volatile long lastSeenMillis;
+        private volatile boolean dirty;
+        private volatile boolean stored;
+
+        private Activity(String id, String username, boolean anonymous) {
+            this.id = id;
+            this.username = username;
+            this.anonymous = anonymous;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.chatapp;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// `archive export <file> [roomId]` and `archive import <file>`, dispatched from the server's
+// main. Runs MessageArchive in a context holding only the database beans: no web server,
+// chat components or warmup, and the archive profile turns partition retention off so an
+// export never drops what it is about to read. Not a @Configuration, so the server's
+// component scan skips it. spring.datasource.* and other properties can be overridden
+// with --name=value as usual.
+@ImportAutoConfiguration(DataSourceAutoConfiguration.class)
+@Import({DatabaseService.class, ChatMetrics.class, MessagePartitions.class, MessageArchive.class})
+public class ArchiveTool {
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    public static int run(String[] args) throws Exception {
+        String[] operands = Arrays.stream(args).filter(arg -> !arg.startsWith("--")).toArray(String[]::new);
+        boolean export = operands.length >= 2 && operands.length <= 3 && operands[0].equals("export");
+        boolean load = operands.length == 2 && operands[0].equals("import");
+        if (!export && !load) {
+            System.err.println("Usage: archive export <file.ndjson.gz> [roomId] | archive import <file.ndjson.gz>");
+            return 2;
+        }
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ArchiveTool.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                // A profile rather than default properties, which application.properties overrides
+                .profiles("archive")
+                .run(args)) {
+            MessageArchive archive = context.getBean(MessageArchive.class);
+            Path file = Path.of(operands[1]);
+            MessageArchive.Stats stats = export
+                ? archive.export(file, operands.length == 3 ? operands[2] : null)
+                : archive.importArchive(file);
+            System.out.println((export ? "Exported " : "Imported ") + stats);
+            return 0;
+        }
+    }
+}
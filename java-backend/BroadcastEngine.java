@@ -0,0 +1,359 @@
+package com.chatapp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.WebSocketSession;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fan-out of pre-encoded frames. The sending thread hands each frame over once, in O(1);
+// the fan-out worker then walks the recipients and puts it on each session's outbound
+// queue, which the delivery executor drains. Single sends and close requests take the same
+// hand-off, so a session sees frames in the order they were issued.
+@Component
+public class BroadcastEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(BroadcastEngine.class);
+
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    // 4500 "not reliable" with a reason clients can match on before reconnecting
+    public static final CloseStatus SLOW_CONSUMER = CloseStatus.SESSION_NOT_RELIABLE.withReason("Slow consumer");
+
+    @Value("${app.chat.outbound.send-time-limit-ms:5000}")
+    private long sendTimeLimitMs;
+
+    @Value("${app.chat.outbound.buffer-size-limit:524288}")
+    private int bufferSizeLimit;
+
+    @Value("${app.chat.outbound.delivery-threads:0}")
+    private int deliveryThreads;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private ChatThreads chatThreads;
+
+    private final Map<String, OutboundChannel> channels = new ConcurrentHashMap<>();
+    // Frames waiting across all outbound queues, exported as a gauge
+    private final LongAdder queuedFrames = new LongAdder();
+    private final BlockingQueue<Runnable> fanOut = new LinkedBlockingQueue<>();
+    private ExecutorService deliveryExecutor;
+    private Thread fanOutWorker;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        // In virtual-thread mode every drain gets its own thread, so a send blocked on one
+        // socket never delays another session; delivery-threads only sizes the platform pool
+        int threads = deliveryThreads > 0 ? deliveryThreads : Runtime.getRuntime().availableProcessors() * 2;
+        deliveryExecutor = chatThreads.newTaskExecutor("chat-delivery", threads);
+        running = true;
+        fanOutWorker = chatThreads.newThread("chat-fanout", this::runFanOut);
+        fanOutWorker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The worker finishes what was handed over before it exits
+        running = false;
+        fanOutWorker.join(sendTimeLimitMs);
+        deliveryExecutor.shutdown();
+        deliveryExecutor.awaitTermination(sendTimeLimitMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void register(WebSocketSession session) {
+        // Tomcat otherwise lets a blocking send to a stalled client hold a delivery thread for 20s
+        if (session instanceof NativeWebSocketSession nativeSession
+                && nativeSession.getNativeSession() instanceof Session endpointSession) {
+            endpointSession.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeLimitMs);
+        }
+        channels.put(session.getId(), new OutboundChannel(session));
+    }
+
+    public void unregister(String sessionId) {
+        OutboundChannel channel = channels.remove(sessionId);
+        if (channel != null) {
+            channel.discard();
+        }
+    }
+
+    public int sessionCount() {
+        return channels.size();
+    }
+
+    public List<String> sessionIds() {
+        return List.copyOf(channels.keySet());
+    }
+
+    // Delivers what is already queued for the session, then closes it with the status
+    public void closeAfterPending(String sessionId, CloseStatus status) {
+        fanOut.add(() -> {
+            OutboundChannel channel = channels.get(sessionId);
+            if (channel != null) {
+                channel.closeAfterPending(status);
+            }
+        });
+    }
+
+    public long queuedFrames() {
+        return queuedFrames.sum();
+    }
+
+    // Hand-offs the fan-out worker has not reached yet
+    public int fanOutPending() {
+        return fanOut.size();
+    }
+
+    public void send(String sessionId, OutboundFrame frame) {
+        fanOut.add(() -> deliver(sessionId, frame));
+    }
+
+    public void broadcast(OutboundFrame frame) {
+        fanOut.add(() -> {
+            for (OutboundChannel channel : channels.values()) {
+                channel.enqueue(frame);
+            }
+        });
+    }
+
+    public void broadcastExcept(OutboundFrame frame, String excludedSessionId) {
+        fanOut.add(() -> {
+            for (OutboundChannel channel : channels.values()) {
+                if (!channel.session.getId().equals(excludedSessionId)) {
+                    channel.enqueue(frame);
+                }
+            }
+        });
+    }
+
+    // sessionIds is read on the fan-out worker. A live view such as a room's members reaches
+    // whoever is in the room when the frame goes out; callers that must not reach sessions
+    // joining in between (chat messages, see ClusterRelay) pass a snapshot.
+    public void broadcastTo(Iterable<String> sessionIds, OutboundFrame frame, String excludedSessionId) {
+        fanOut.add(() -> {
+            for (String sessionId : sessionIds) {
+                if (!sessionId.equals(excludedSessionId)) {
+                    deliver(sessionId, frame);
+                }
+            }
+        });
+    }
+
+    private void deliver(String sessionId, OutboundFrame frame) {
+        OutboundChannel channel = channels.get(sessionId);
+        if (channel != null) {
+            channel.enqueue(frame);
+        }
+    }
+
+    private void runFanOut() {
+        try {
+            while (running || !fanOut.isEmpty()) {
+                Runnable task = fanOut.poll(100, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.warn("Fan-out task failed", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Per-session queue with ConcurrentWebSocketSessionDecorator-style limits. Under pressure
+    // a session loses droppable frames first: they are not queued once half the buffer is
+    // used, and queued ones are shed before a chat frame would overflow it. Frames with a
+    // coalesce key hold one queue slot per key, delivering only the newest. A session still
+    // over the byte limit, or with one send in flight longer than the time limit, is closed
+    // with SLOW_CONSUMER.
+    private final class OutboundChannel implements Runnable {
+        private final WebSocketSession session;
+        private final WireFormat format;
+        private final Queue<OutboundFrame> queue = new ConcurrentLinkedQueue<>();
+        // Newest undelivered frame per coalesce key; the queue holds a slot frame for each key
+        private final Map<String, OutboundFrame> latest = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private volatile long sendStartNanos;
+        private volatile boolean closed;
+        // Set by closeAfterPending; the session is closed once the queue is empty
+        private volatile CloseStatus pendingClose;
+
+        OutboundChannel(WebSocketSession session) {
+            this.session = session;
+            this.format = WireFormat.fromSubprotocol(session.getAcceptedProtocol());
+        }
+
+        void enqueue(OutboundFrame frame) {
+            if (closed) {
+                return;
+            }
+            long sendStart = sendStartNanos;
+            if (sendStart != 0 && System.nanoTime() - sendStart > TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs)) {
+                closeSlow("send_time");
+                return;
+            }
+            int size = frame.size(format);
+            if (frame.isDroppable() && queuedBytes.get() + size > bufferSizeLimit / 2) {
+                chatMetrics.countFrameDropped("shed");
+                return;
+            }
+            String key = frame.coalesceKey();
+            if (key != null) {
+                OutboundFrame previous = latest.put(key, frame);
+                queuedBytes.addAndGet(previous == null ? size : size - previous.size(format));
+                if (previous != null) {
+                    // The pending slot delivers this frame instead
+                    chatMetrics.countFrameDropped("coalesced");
+                    return;
+                }
+            } else if (queuedBytes.addAndGet(size) > bufferSizeLimit
+                    && queuedBytes.addAndGet(-shedDroppable()) > bufferSizeLimit) {
+                queuedBytes.addAndGet(-size);
+                closeSlow("buffer");
+                return;
+            }
+            queue.offer(frame);
+            queuedFrames.increment();
+            if (scheduled.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                OutboundFrame frame;
+                while (!closed && (frame = queue.poll()) != null) {
+                    queuedFrames.decrement();
+                    if (frame.coalesceKey() != null) {
+                        frame = latest.remove(frame.coalesceKey());
+                        if (frame == null) {
+                            // Shed while queued
+                            continue;
+                        }
+                    }
+                    queuedBytes.addAndGet(-frame.size(format));
+                    if (!session.isOpen()) {
+                        closed = true;
+                        break;
+                    }
+                    sendStartNanos = System.nanoTime();
+                    try {
+                        session.sendMessage(frame.message(format));
+                    } catch (IOException | IllegalStateException e) {
+                        // Tomcat throws IllegalStateException once the session closes under a send
+                        log.debug("Error delivering to session {}: {}", session.getId(), e.getMessage());
+                        if (System.nanoTime() - sendStartNanos >= TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs)) {
+                            closeSlow("send_time");
+                        } else {
+                            // The connection is gone; stop delivering instead of failing every frame
+                            closed = true;
+                        }
+                    } finally {
+                        sendStartNanos = 0;
+                    }
+                }
+                if (!closed && pendingClose != null && queue.isEmpty()) {
+                    closed = true;
+                    try {
+                        session.close(pendingClose);
+                    } catch (IOException e) {
+                        log.debug("Error closing session {}: {}", session.getId(), e.getMessage());
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                if (closed) {
+                    discardQueued();
+                } else if ((!queue.isEmpty() || pendingClose != null) && scheduled.compareAndSet(false, true)) {
+                    deliveryExecutor.execute(this);
+                }
+            }
+        }
+
+        void closeAfterPending(CloseStatus status) {
+            pendingClose = status;
+            if (scheduled.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this);
+            }
+        }
+
+        // Removes queued droppable frames and returns the bytes freed
+        private long shedDroppable() {
+            long freed = 0;
+            for (OutboundFrame frame : queue) {
+                if (frame.isDroppable() && frame.coalesceKey() == null && queue.remove(frame)) {
+                    queuedFrames.decrement();
+                    freed += frame.size(format);
+                    chatMetrics.countFrameDropped("shed");
+                }
+            }
+            // Their slots stay queued and are skipped when polled
+            for (String key : latest.keySet()) {
+                OutboundFrame frame = latest.remove(key);
+                if (frame != null) {
+                    freed += frame.size(format);
+                    chatMetrics.countFrameDropped("shed");
+                }
+            }
+            return freed;
+        }
+
+        // The close handshake goes out on the congested socket, so it runs on a delivery
+        // thread rather than the broadcasting one
+        private synchronized void closeSlow(String reason) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            discardQueued();
+            chatMetrics.countSlowConsumer(reason);
+            log.info("Closing slow session {} ({})", session.getId(), reason);
+            deliveryExecutor.execute(() -> {
+                try {
+                    session.close(SLOW_CONSUMER);
+                } catch (IOException e) {
+                    log.debug("Error closing slow session {}: {}", session.getId(), e.getMessage());
+                }
+            });
+        }
+
+        void discard() {
+            closed = true;
+            discardQueued();
+        }
+
+        private void discardQueued() {
+            while (queue.poll() != null) {
+                queuedFrames.decrement();
+            }
+            latest.clear();
+        }
+    }
+}
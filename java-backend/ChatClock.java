@@ -0,0 +1,49 @@
+package com.chatapp;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+// Wall clock for message timestamps, at millisecond precision. The current time and its
+// ISO_LOCAL_DATE_TIME text are built once per millisecond and shared by every message
+// stamped within it, so a busy node formats at most a thousand timestamps a second rather
+// than one per message. Racing threads may both build the same tick; either result is
+// correct.
+public final class ChatClock {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private record Tick(long millis, LocalDateTime time, String text) {
+    }
+
+    private static volatile Tick last = tick(System.currentTimeMillis());
+
+    private ChatClock() {
+    }
+
+    public static LocalDateTime now() {
+        long millis = System.currentTimeMillis();
+        Tick tick = last;
+        if (tick.millis() != millis) {
+            tick = tick(millis);
+            last = tick;
+        }
+        return tick.time();
+    }
+
+    // Free for a timestamp from now() in the current millisecond, which is when messages
+    // are encoded for broadcast; anything else is formatted
+    public static String format(LocalDateTime time) {
+        Tick tick = last;
+        if (tick.time().equals(time)) {
+            return tick.text();
+        }
+        return time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    private static Tick tick(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+        return new Tick(millis, time, time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+    }
+}
@@ -0,0 +1,53 @@
+package com.chatapp;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Gauges are sampled on scrape, so they cost nothing on the message path. Kept apart from
+// ChatMetrics because the components they read depend on ChatMetrics themselves.
+@Component
+public class ChatGauges implements MeterBinder {
+
+    @Autowired
+    private BroadcastEngine broadcastEngine;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private MessageJournal messageJournal;
+
+    @Autowired
+    private ActivityTracker activityTracker;
+
+    @Autowired
+    private SessionResumption sessionResumption;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("chat.sessions.active", broadcastEngine, BroadcastEngine::sessionCount)
+            .description("Open WebSocket sessions")
+            .register(registry);
+        Gauge.builder("chat.users.online", presenceService, PresenceService::onlineCount)
+            .description("Distinct users online")
+            .register(registry);
+        Gauge.builder("chat.outbound.queue.depth", broadcastEngine, BroadcastEngine::queuedFrames)
+            .description("Frames waiting in per-session outbound queues")
+            .register(registry);
+        Gauge.builder("chat.outbound.fanout.pending", broadcastEngine, BroadcastEngine::fanOutPending)
+            .description("Broadcasts and sends handed over but not yet queued per session")
+            .register(registry);
+        Gauge.builder("chat.journal.pending", messageJournal, MessageJournal::pendingCount)
+            .description("Messages queued for the journal writer")
+            .register(registry);
+        Gauge.builder("chat.activity.tracked", activityTracker, ActivityTracker::trackedCount)
+            .description("Users with last-seen times held in memory")
+            .register(registry);
+        Gauge.builder("chat.sessions.detached", sessionResumption, SessionResumption::detachedCount)
+            .description("Dropped sessions waiting to be resumed")
+            .register(registry);
+    }
+}
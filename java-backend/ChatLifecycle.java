@@ -0,0 +1,176 @@
+package com.chatapp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Startup warmup and shutdown drain. The schema is applied when DatabaseService is created;
+// this runner then loads every room's recent messages and runs the decode/encode path until
+// the JIT has compiled it. Boot reports readiness (/actuator/health/readiness) only after
+// runners finish, and until then new connections are refused.
+//
+// On shutdown, before the web server stops, joins are refused, queued messages and activity
+// are written, and sessions are told to reconnect and closed with 1012 in batches. Each
+// session gets its own reconnect delay within reconnect-window-ms, so the next node sees a
+// ramp instead of every client at once.
+@Component
+public class ChatLifecycle implements ApplicationRunner, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatLifecycle.class);
+
+    private static final CloseStatus RESTARTING = CloseStatus.SERVICE_RESTARTED.withReason("Server restarting");
+
+    @Value("${app.chat.warmup.iterations:20000}")
+    private int warmupIterations;
+
+    @Value("${app.chat.shutdown.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.chat.shutdown.batch-interval-ms:100}")
+    private long batchIntervalMs;
+
+    @Value("${app.chat.shutdown.reconnect-window-ms:10000}")
+    private long reconnectWindowMs;
+
+    @Value("${app.chat.shutdown.drain-timeout-ms:10000}")
+    private long drainTimeoutMs;
+
+    @Autowired
+    private RoomRegistry roomRegistry;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private ProtocolCodec protocolCodec;
+
+    @Autowired
+    private BroadcastEngine broadcastEngine;
+
+    @Autowired
+    private MessageJournal messageJournal;
+
+    @Autowired
+    private ActivityTracker activityTracker;
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+
+    // False while warming up and once the drain has started
+    public boolean isAccepting() {
+        return accepting;
+    }
+
+    public CloseStatus refusal() {
+        return RESTARTING;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long start = System.nanoTime();
+        for (String roomId : roomRegistry.roomIds()) {
+            // Encodes the JSON frame and its CBOR form, which are then reused until the next message
+            recentMessageCache.historyFrame(roomId).size(WireFormat.CBOR);
+        }
+        long checksum = warmCodec();
+        accepting = true;
+        log.info("Chat server warmed up in {} ms ({} rooms, {} codec iterations, checksum {})",
+            (System.nanoTime() - start) / 1_000_000, roomRegistry.roomIds().size(), warmupIterations, checksum);
+    }
+
+    // The per-message path: type peek, decode of each inbound frame type in JSON and CBOR,
+    // and encode/transcode of the outbound message frame. The checksum keeps the work live.
+    private long warmCodec() throws Exception {
+        ChatMessage sample = new ChatMessage("msg_warmup", RoomRegistry.DEFAULT_ROOM, "warmup",
+            "Warming up the message path", ChatClock.now(), true);
+        List<String> frames = List.of(
+            "{\"type\":\"user_join\",\"user\":{\"id\":\"warmup\",\"username\":\"warmup\",\"isAnonymous\":true}}",
+            "{\"type\":\"message\",\"message\":{\"id\":\"msg_warmup\",\"content\":\"Warming up the message path\"}}",
+            "{\"type\":\"typing_start\"}",
+            "{\"type\":\"history_request\",\"roomId\":\"room_general\",\"limit\":50}");
+        long checksum = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            for (String frame : frames) {
+                checksum += protocolCodec.peekType(frame).length();
+                checksum += protocolCodec.decode(frame).hashCode();
+            }
+            OutboundFrame outbound = OutboundFrame.text(protocolCodec.encodeMessage(sample, i));
+            checksum += outbound.size(WireFormat.CBOR);
+            checksum += protocolCodec.decodeBinary((ByteBuffer) outbound.message(WireFormat.CBOR).getPayload()).hashCode();
+        }
+        return checksum;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    // Stops before the web server's graceful shutdown, which has a lower phase
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void stop() {
+        accepting = false;
+        try {
+            drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+        }
+    }
+
+    private void drain() throws InterruptedException {
+        long start = System.nanoTime();
+        if (!messageJournal.awaitIdle(drainTimeoutMs)) {
+            log.warn("Message journal not idle after {} ms; the rest is written on close", drainTimeoutMs);
+        }
+        activityTracker.flush();
+
+        // Random order, so repeated restarts do not always send the same clients first
+        List<String> sessionIds = new ArrayList<>(broadcastEngine.sessionIds());
+        Collections.shuffle(sessionIds);
+        log.info("Draining {} sessions in batches of {}", sessionIds.size(), batchSize);
+        for (int from = 0; from < sessionIds.size(); from += batchSize) {
+            if (from > 0) {
+                Thread.sleep(batchIntervalMs);
+            }
+            for (String sessionId : sessionIds.subList(from, Math.min(from + batchSize, sessionIds.size()))) {
+                long reconnectAfterMs = ThreadLocalRandom.current().nextLong(reconnectWindowMs + 1);
+                try {
+                    broadcastEngine.send(sessionId, OutboundFrame.text(protocolCodec.encodeRestart(reconnectAfterMs)));
+                } catch (Exception e) {
+                    log.debug("Error encoding restart frame for {}: {}", sessionId, e.getMessage());
+                }
+                broadcastEngine.closeAfterPending(sessionId, RESTARTING);
+            }
+        }
+
+        long deadline = System.nanoTime() + drainTimeoutMs * 1_000_000;
+        while (broadcastEngine.sessionCount() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(batchIntervalMs);
+        }
+        log.info("Drain finished in {} ms; {} sessions still open",
+            (System.nanoTime() - start) / 1_000_000, broadcastEngine.sessionCount());
+    }
+}
@@ -0,0 +1,14 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalDateTime;
+
+// Immutable chat message as persisted in the messages table
+public record ChatMessage(
+        String id,
+        String roomId,
+        String username,
+        String content,
+        LocalDateTime timestamp,
+        @JsonProperty("isAnonymous") boolean isAnonymous) {
+}
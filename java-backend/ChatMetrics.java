@@ -0,0 +1,180 @@
+package com.chatapp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Timers and counters for the message hot path. Meters are registered once up front so
+// recording is a nanoTime delta plus an increment, with no tag lookups per message.
+@Component
+public class ChatMetrics {
+
+    private final MeterRegistry registry;
+    private final Timer parseTimer;
+    private final Timer enqueueTimer;
+    private final Timer broadcastTimer;
+    private final Map<Class<?>, Counter> messageCounters;
+    private final Counter unknownMessages;
+    private final Counter clusterEvents;
+    private final Counter clusterGaps;
+    private final Counter clusterDropped;
+    private final Timer partitionMaintenance;
+    private final Counter partitionsRetired;
+    private final Counter rowsRetired;
+    private final Counter searchTimeouts;
+    private final Map<String, Timer> dbTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> droppedFrames = new ConcurrentHashMap<>();
+    private final Map<String, Counter> slowConsumers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedFrames = new ConcurrentHashMap<>();
+    private final Map<String, Counter> resumes = new ConcurrentHashMap<>();
+
+    public ChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.parseTimer = phaseTimer("parse");
+        // Not a phase: the message is only handed to the journal here, and the write
+        // itself shows up under chat.db.calls{method=saveMessages}
+        this.enqueueTimer = Timer.builder("chat.journal.enqueue")
+            .description("Time to hand a message to the journal, including backpressure waits and fallback writes")
+            .register(registry);
+        this.broadcastTimer = phaseTimer("broadcast");
+        this.messageCounters = Map.of(
+            ChatProtocol.UserJoin.class, messageCounter("user_join"),
+            ChatProtocol.SendMessage.class, messageCounter("message"),
+            ChatProtocol.UserLeave.class, messageCounter("user_leave"),
+            ChatProtocol.TypingStart.class, messageCounter("typing_start"),
+            ChatProtocol.TypingStop.class, messageCounter("typing_stop"),
+            ChatProtocol.JoinRoom.class, messageCounter("join_room"),
+            ChatProtocol.LeaveRoom.class, messageCounter("leave_room"),
+            ChatProtocol.PresenceSync.class, messageCounter("presence_sync"),
+            ChatProtocol.HistoryRequest.class, messageCounter("history_request"),
+            ChatProtocol.SessionResume.class, messageCounter("session_resume")
+        );
+        this.unknownMessages = messageCounter("unknown");
+        this.clusterEvents = Counter.builder("chat.cluster.events.received")
+            .description("Events received from other nodes")
+            .register(registry);
+        this.clusterGaps = Counter.builder("chat.cluster.gaps")
+            .description("Sequence gaps seen in events from other nodes")
+            .register(registry);
+        this.clusterDropped = Counter.builder("chat.cluster.events.dropped")
+            .description("Events not published because the cluster outbox was full")
+            .register(registry);
+        this.partitionMaintenance = Timer.builder("chat.partitions.maintenance")
+            .description("Duration of a message partition maintenance run")
+            .register(registry);
+        this.partitionsRetired = Counter.builder("chat.partitions.retired")
+            .description("Expired message partitions dropped")
+            .register(registry);
+        this.rowsRetired = Counter.builder("chat.partitions.rows.retired")
+            .description("Messages removed with expired partitions, as estimated by the planner")
+            .register(registry);
+        this.searchTimeouts = Counter.builder("chat.search.timeouts")
+            .description("Message searches abandoned at the time budget")
+            .register(registry);
+    }
+
+    public void recordParse(long startNanos) {
+        parseTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordEnqueue(long startNanos) {
+        enqueueTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBroadcast(long startNanos) {
+        broadcastTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countMessage(ChatProtocol.ClientMessage message) {
+        messageCounters.getOrDefault(message.getClass(), unknownMessages).increment();
+    }
+
+    public void countClusterEvent() {
+        clusterEvents.increment();
+    }
+
+    public void countClusterGap() {
+        clusterGaps.increment();
+    }
+
+    public void countClusterDropped() {
+        clusterDropped.increment();
+    }
+
+    public void recordPartitionMaintenance(long startNanos) {
+        partitionMaintenance.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countPartitionRetired(long rows) {
+        partitionsRetired.increment();
+        rowsRetired.increment(rows);
+    }
+
+    public void countSearchTimeout() {
+        searchTimeouts.increment();
+    }
+
+    // reason: frame_too_large, rate_limited, message_too_long or username_too_long
+    public void countRejected(String reason) {
+        rejectedFrames.computeIfAbsent(reason, name -> Counter.builder("chat.messages.rejected")
+                .description("Inbound frames refused by size and rate limits")
+                .tag("reason", name)
+                .register(registry))
+            .increment();
+    }
+
+    // outcome: replayed (missed messages only), full_history (log no longer covered the gap),
+    // unknown_token (expired or never issued) or expired (grace period ran out unused)
+    public void countResume(String outcome) {
+        resumes.computeIfAbsent(outcome, name -> Counter.builder("chat.sessions.resumes")
+                .description("Session resume attempts and detached sessions that expired")
+                .tag("outcome", name)
+                .register(registry))
+            .increment();
+    }
+
+    // reason: shed (dropped under pressure) or coalesced (replaced by a newer frame)
+    public void countFrameDropped(String reason) {
+        droppedFrames.computeIfAbsent(reason, name -> Counter.builder("chat.outbound.dropped")
+                .description("Droppable outbound frames not delivered")
+                .tag("reason", name)
+                .register(registry))
+            .increment();
+    }
+
+    // reason: buffer (byte limit) or send_time (a send stuck past the time limit)
+    public void countSlowConsumer(String reason) {
+        slowConsumers.computeIfAbsent(reason, name -> Counter.builder("chat.outbound.slow.consumers")
+                .description("Sessions closed for not keeping up with delivery")
+                .tag("reason", name)
+                .register(registry))
+            .increment();
+    }
+
+    // One timer per DatabaseService method, tagged with the method name
+    public void recordDb(String method, long startNanos) {
+        dbTimers.computeIfAbsent(method, name -> Timer.builder("chat.db.calls")
+                .description("DatabaseService call latency")
+                .tag("method", name)
+                .register(registry))
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer phaseTimer(String phase) {
+        return Timer.builder("chat.message.phase")
+            .description("Time spent in each stage of handling an inbound frame")
+            .tag("phase", phase)
+            .register(registry);
+    }
+
+    private Counter messageCounter(String type) {
+        return Counter.builder("chat.messages.received")
+            .description("Inbound frames by message type")
+            .tag("type", type)
+            .register(registry);
+    }
+}
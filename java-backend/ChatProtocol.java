@@ -0,0 +1,76 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Typed wire protocol. Inbound frames decode to one ClientMessage record per "type";
+// outbound frames are records serialized through pre-built ObjectWriters.
+public final class ChatProtocol {
+
+    private ChatProtocol() {
+    }
+
+    public sealed interface ClientMessage {
+    }
+
+    public record UserJoin(String userId, String username, boolean isAnonymous, String roomId) implements ClientMessage {
+    }
+
+    public record SendMessage(String id, String content, String timestamp) implements ClientMessage {
+    }
+
+    public record UserLeave() implements ClientMessage {
+    }
+
+    public record TypingStart() implements ClientMessage {
+    }
+
+    public record TypingStop() implements ClientMessage {
+    }
+
+    public record JoinRoom(String roomId) implements ClientMessage {
+    }
+
+    public record LeaveRoom() implements ClientMessage {
+    }
+
+    public record PresenceSync() implements ClientMessage {
+    }
+
+    // Older history, paged backwards: before is the nextCursor of the previous page
+    public record HistoryRequest(String roomId, String before, Integer limit) implements ClientMessage {
+    }
+
+    // Reconnect within the grace period: the token from session_started/session_resumed
+    // and the seq of the last message received in the room
+    public record SessionResume(String resumeToken, Long lastSeq) implements ClientMessage {
+    }
+
+    public record Unknown(String type) implements ClientMessage {
+    }
+
+    public record MessageFrame(String type, String roomId, long seq, MessageBody message) {
+    }
+
+    public record MessageBody(
+            String id,
+            String username,
+            String content,
+            String timestamp,
+            @JsonProperty("isAnonymous") boolean isAnonymous) {
+    }
+
+    public record RoomFrame(String type, String roomId) {
+    }
+
+    public record ErrorFrame(String type, String message) {
+    }
+
+    // Sent before the server closes a connection with 1012 (service restart): the client
+    // should wait reconnectAfterMs, spread per session so clients do not reconnect at once
+    public record RestartFrame(String type, long reconnectAfterMs) {
+    }
+
+    // session_started, session_resumed or session_expired (token and room are then null)
+    public record SessionFrame(String type, String resumeToken, String roomId) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.chatapp;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Execution mode for the threads that do blocking work per message: per-session delivery
+// and journal writes. With spring.threads.virtual.enabled on a Java 21 runtime they run on
+// virtual threads, as do Tomcat's request threads and the MVC async executor (configured by
+// Boot from the same property). Otherwise they use the platform threads of the original
+// design. The code still compiles for Java 17, so the virtual-thread APIs are looked up at
+// runtime.
+@Component
+public class ChatThreads {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatThreads.class);
+
+    private final boolean virtual;
+    // Periodic in-memory ticks (typing, presence, heartbeats) share one platform thread in
+    // both modes; their work is short and never waits on the database
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public ChatThreads(Environment environment) {
+        this(Threading.VIRTUAL.isActive(environment));
+    }
+
+    public ChatThreads(boolean virtual) {
+        this.virtual = virtual;
+        log.info("Chat server running on {} threads", virtual ? "virtual" : "platform");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    // Virtual mode starts a thread per task; platform mode is a fixed pool of daemon threads
+    public ExecutorService newTaskExecutor(String name, int platformThreads) {
+        if (virtual) {
+            try {
+                return (ExecutorService) ThreadPerTask.NEW_EXECUTOR.invoke(virtualThreadFactory(name));
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot create virtual-thread executor " + name, e);
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(platformThreads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // A long-running worker. Virtual threads are always daemon threads, so callers stop
+    // and join their worker on shutdown in both modes.
+    public Thread newThread(String name, Runnable task) {
+        Thread thread = virtual ? virtualThreadFactory(name).newThread(task) : new Thread(task);
+        thread.setName(name);
+        return thread;
+    }
+
+    // Runs task every periodMs on the shared scheduler. A failing run is logged and the next
+    // one still happens, where a bare ScheduledExecutorService would cancel the task for good.
+    // Callers cancel the returned future on shutdown.
+    public ScheduledFuture<?> scheduleAtFixedRate(String name, Runnable task, long periodMs) {
+        return scheduler.scheduleAtFixedRate(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Scheduled task {} failed", name, e);
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private static ThreadFactory virtualThreadFactory(String name) {
+        return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+    }
+
+    // Executors.newThreadPerTaskExecutor is Java 21+; resolved only when virtual mode is used
+    private static final class ThreadPerTask {
+        private static final MethodHandle NEW_EXECUTOR;
+
+        static {
+            try {
+                NEW_EXECUTOR = MethodHandles.publicLookup().findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+}
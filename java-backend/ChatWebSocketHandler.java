@@ -1,218 +1,371 @@
 package com.chatapp;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.Map;
 import java.util.List;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Map;
 
 @Component
-public class ChatWebSocketHandler implements WebSocketHandler {
+public class ChatWebSocketHandler implements WebSocketHandler, SubProtocolCapable {
     
-    private static final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-    private static final Map<String, User> sessionUsers = new ConcurrentHashMap<>();
-    private static final List<User> onlineUsers = new CopyOnWriteArrayList<>();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Logger log = LoggerFactory.getLogger(ChatWebSocketHandler.class);
+
+    // The joined user of each session; one lookup per inbound frame
+    private final Map<String, User> sessionUsers = new ConcurrentHashMap<>();
+
+    // Raw frame size in characters (text) or bytes (CBOR), checked before anything is parsed
+    @Value("${app.chat.max-frame-size:4096}")
+    private int maxFrameSize;
+
+    @Value("${app.chat.max-message-length:500}")
+    private int maxMessageLength;
+
+    @Value("${app.chat.max-username-length:20}")
+    private int maxUsernameLength;
+
+    @Autowired
+    private MessageJournal messageJournal;
+
+    @Autowired
+    private BroadcastEngine broadcastEngine;
+
+    @Autowired
+    private RoomRegistry roomRegistry;
+
+    @Autowired
+    private TypingAggregator typingAggregator;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private ProtocolCodec protocolCodec;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private ClusterRelay clusterRelay;
+
+    @Autowired
+    private MessageHistory messageHistory;
+
+    @Autowired
+    private ActivityTracker activityTracker;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private SessionResumption sessionResumption;
 
     @Autowired
-    private DatabaseService databaseService;
+    private ChatLifecycle chatLifecycle;
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        System.out.println("🔗 New WebSocket connection established: " + session.getId());
-        sessions.put(session.getId(), session);
+        log.debug("WebSocket connection established: {}", session.getId());
+        // Still warming up or draining for shutdown: the client retries on another node
+        if (!chatLifecycle.isAccepting()) {
+            session.close(chatLifecycle.refusal());
+            return;
+        }
+        rateLimiter.register(session.getId());
+        broadcastEngine.register(session);
     }
 
     @Override
     public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
-        String payload = message.getPayload().toString();
-        System.out.println("📨 Received message: " + payload);
-        
         try {
-            Map<String, Object> data = objectMapper.readValue(payload, Map.class);
-            String type = (String) data.get("type");
+            if (!admit(session, message)) {
+                return;
+            }
+            long parseStart = System.nanoTime();
+            // Binary frames come from connections that negotiated the CBOR subprotocol
+            ChatProtocol.ClientMessage decoded = message instanceof BinaryMessage binary
+                ? protocolCodec.decodeBinary(binary.getPayload())
+                : protocolCodec.decode(message.getPayload().toString());
+            chatMetrics.recordParse(parseStart);
+            chatMetrics.countMessage(decoded);
             
-            switch (type) {
-                case "user_join":
-                    handleUserJoin(session, data);
-                    break;
-                case "message":
-                    handleChatMessage(session, data);
-                    break;
-                case "user_leave":
-                    handleUserLeave(session);
-                    break;
-                case "typing_start":
-                    handleTypingStart(session, data);
-                    break;
-                case "typing_stop":
-                    handleTypingStop(session, data);
-                    break;
-                default:
-                    System.out.println("⚠️ Unknown message type: " + type);
+            if (decoded instanceof ChatProtocol.UserJoin join) {
+                handleUserJoin(session, join);
+            } else if (decoded instanceof ChatProtocol.SendMessage send) {
+                handleChatMessage(session, send);
+            } else if (decoded instanceof ChatProtocol.SessionResume resume) {
+                handleSessionResume(session, resume);
+            } else if (decoded instanceof ChatProtocol.UserLeave) {
+                handleUserLeave(session, false);
+            } else if (decoded instanceof ChatProtocol.TypingStart) {
+                handleTypingStart(session);
+            } else if (decoded instanceof ChatProtocol.TypingStop) {
+                handleTypingStop(session);
+            } else if (decoded instanceof ChatProtocol.JoinRoom joinRoom) {
+                handleJoinRoom(session, joinRoom.roomId());
+            } else if (decoded instanceof ChatProtocol.LeaveRoom) {
+                handleLeaveRoom(session);
+            } else if (decoded instanceof ChatProtocol.PresenceSync) {
+                presenceService.sendSnapshot(session.getId());
+            } else if (decoded instanceof ChatProtocol.HistoryRequest request) {
+                handleHistoryRequest(session, request);
+            } else if (decoded instanceof ChatProtocol.Unknown unknown) {
+                log.debug("Unknown message type: {}", unknown.type());
             }
         } catch (Exception e) {
-            System.err.println("❌ Error handling message: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Error handling message from session {}", session.getId(), e);
         }
     }
 
-    private void handleUserJoin(WebSocketSession session, Map<String, Object> data) throws IOException {
-        Map<String, Object> userData = (Map<String, Object>) data.get("user");
-        User user = new User(
-            (String) userData.get("id"),
-            (String) userData.get("username"),
-            (Boolean) userData.get("isAnonymous")
-        );
+    // Oversized frames and frames over the sender's rate are refused before the full decode;
+    // only the leading "type" field is read to pick the rate bucket
+    private boolean admit(WebSocketSession session, WebSocketMessage<?> message) throws IOException {
+        ByteBuffer binaryPayload = message instanceof BinaryMessage binary ? binary.getPayload() : null;
+        String textPayload = binaryPayload == null ? message.getPayload().toString() : null;
+        int size = binaryPayload != null ? binaryPayload.remaining() : textPayload.length();
+        if (size > maxFrameSize) {
+            reject(session, "frame_too_large", "Frame too large");
+            return false;
+        }
+        RateLimiter.Bucket bucket = RateLimiter.Bucket.of(binaryPayload != null
+            ? protocolCodec.peekTypeBinary(binaryPayload)
+            : protocolCodec.peekType(textPayload));
+        if (!rateLimiter.tryAcquire(session.getId(), bucket)) {
+            // Typing frames are dropped silently; the next one through restores the indicator
+            chatMetrics.countRejected("rate_limited");
+            if (bucket != RateLimiter.Bucket.TYPING) {
+                // At most one pending notice per session, however fast the client floods
+                broadcastEngine.send(session.getId(), OutboundFrame.latest(protocolCodec.encodeError("Rate limit exceeded"), "rate_limited"));
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void reject(WebSocketSession session, String reason, String message) throws IOException {
+        chatMetrics.countRejected(reason);
+        sendError(session, message);
+    }
+
+    private void handleUserJoin(WebSocketSession session, ChatProtocol.UserJoin join) throws IOException {
+        if (!chatLifecycle.isAccepting()) {
+            reject(session, "restarting", "Server is restarting");
+            return;
+        }
+        if (join.userId() == null || join.username() == null) {
+            sendError(session, "user_join requires a user id and username");
+            return;
+        }
+        if (join.username().length() > maxUsernameLength) {
+            reject(session, "username_too_long", "Username exceeds " + maxUsernameLength + " characters");
+            return;
+        }
+        User user = new User(join.userId(), join.username(), join.isAnonymous());
         
-        sessionUsers.put(session.getId(), user);
-        onlineUsers.add(user);
+        // A second join would announce the session again and issue a second resume token
+        if (sessionUsers.putIfAbsent(session.getId(), user) != null) {
+            sendError(session, "Session already joined");
+            return;
+        }
+        clusterRelay.userJoined(user);
+        
+        // Stored with the next activity flush rather than upserted on every join
+        activityTracker.touch(user);
         
-        // Save user to database
-        databaseService.saveUser(user.getId(), user.getUsername(), user.isAnonymous());
+        log.debug("User joined: {}", user);
         
-        System.out.println("👤 User joined: " + user.getUsername() + " (Anonymous: " + user.isAnonymous() + ")");
+        // Lets the client take this session back after a dropped connection
+        sendSession(session, "session_started", sessionResumption.issue(session.getId()), null);
         
-        // Notify all users about new user
-        Map<String, Object> response = Map.of(
-            "type", "user_joined",
-            "username", user.getUsername(),
-            "users", onlineUsers,
-            "timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
-        );
+        // The new user gets the full online list once; everyone else sees it in the next presence delta
+        presenceService.sendSnapshot(session.getId());
         
-        broadcastMessage(objectMapper.writeValueAsString(response));
+        // Place the user in the requested room (or the default one) and send its recent messages
+        String roomId = join.roomId();
+        handleJoinRoom(session, roomRegistry.exists(roomId) ? roomId : RoomRegistry.DEFAULT_ROOM);
+    }
+
+    // A reconnect within the grace period: the user never went offline, so there is no
+    // presence change, and the room gets only the messages after lastSeq when the log still
+    // has them. A client whose token has expired is told so and joins again with user_join.
+    private void handleSessionResume(WebSocketSession session, ChatProtocol.SessionResume resume) throws IOException {
+        if (!chatLifecycle.isAccepting()) {
+            reject(session, "restarting", "Server is restarting");
+            return;
+        }
+        if (sessionUsers.containsKey(session.getId())) {
+            sendError(session, "Session already joined");
+            return;
+        }
+        SessionResumption.Detached detached = sessionResumption.resume(resume.resumeToken());
+        if (detached == null) {
+            chatMetrics.countResume("unknown_token");
+            sendSession(session, "session_expired", null, null);
+            return;
+        }
+        User user = detached.user();
+        sessionUsers.put(session.getId(), user);
+        activityTracker.touch(user);
+        String roomId = detached.roomId();
+        sendSession(session, "session_resumed", sessionResumption.issue(session.getId()), roomId);
+        log.debug("User resumed: {}", user);
         
-        // Send recent messages to new user
-        sendRecentMessages(session);
+        if (roomId == null || !roomRegistry.exists(roomId)) {
+            return;
+        }
+        if (resume.lastSeq() != null && clusterRelay.rejoin(session.getId(), roomId, resume.lastSeq())) {
+            chatMetrics.countResume("replayed");
+        } else {
+            chatMetrics.countResume("full_history");
+            handleJoinRoom(session, roomId);
+        }
+    }
+
+    private void handleJoinRoom(WebSocketSession session, String roomId) throws IOException {
+        if (!roomRegistry.exists(roomId)) {
+            sendError(session, "Unknown room: " + roomId);
+            return;
+        }
+        String previousRoom = clusterRelay.join(session.getId(), roomId, OutboundFrame.text(protocolCodec.encodeRoomJoined(roomId)));
+        if (!roomId.equals(previousRoom)) {
+            clearTyping(sessionUsers.get(session.getId()), previousRoom);
+        }
     }
 
-    private void handleChatMessage(WebSocketSession session, Map<String, Object> data) throws IOException {
-        Map<String, Object> messageData = (Map<String, Object>) data.get("message");
+    private void handleLeaveRoom(WebSocketSession session) throws IOException {
+        String roomId = roomRegistry.leave(session.getId());
+        if (roomId != null) {
+            clearTyping(sessionUsers.get(session.getId()), roomId);
+            broadcastEngine.send(session.getId(), OutboundFrame.text(protocolCodec.encodeRoomLeft(roomId)));
+        }
+    }
+
+    private void handleHistoryRequest(WebSocketSession session, ChatProtocol.HistoryRequest request) throws IOException {
+        String roomId = request.roomId() != null ? request.roomId() : roomRegistry.roomOf(session.getId());
+        if (roomId == null || !roomRegistry.exists(roomId)) {
+            sendError(session, "Unknown room: " + roomId);
+            return;
+        }
+        HistoryCursor before;
+        try {
+            before = HistoryCursor.parse(request.before());
+        } catch (IllegalArgumentException e) {
+            sendError(session, "Invalid history cursor");
+            return;
+        }
+        broadcastEngine.send(session.getId(), messageHistory.pageFrame(roomId, before, messageHistory.pageSize(request.limit())));
+    }
+
+    private void handleChatMessage(WebSocketSession session, ChatProtocol.SendMessage send) throws IOException {
         User sender = sessionUsers.get(session.getId());
         
         if (sender == null) {
-            System.err.println("❌ Message from unknown user");
+            log.debug("Message from session {} before user_join", session.getId());
             return;
         }
         
-        // Save message to database
-        String messageId = (String) messageData.get("id");
-        String content = (String) messageData.get("content");
-        String timestamp = (String) messageData.get("timestamp");
+        String roomId = roomRegistry.roomOf(session.getId());
+        if (roomId == null) {
+            sendError(session, "Join a room before sending messages");
+            return;
+        }
+        if (send.id() == null || send.content() == null) {
+            sendError(session, "message requires an id and content");
+            return;
+        }
+        if (send.content().length() > maxMessageLength) {
+            reject(session, "message_too_long", "Message exceeds " + maxMessageLength + " characters");
+            return;
+        }
         
-        databaseService.saveMessage(messageId, sender.getUsername(), content, sender.isAnonymous());
+        activityTracker.touch(sender);
         
-        System.out.println("💬 Message from " + sender.getUsername() + ": " + content);
+        ChatMessage chatMessage = new ChatMessage(send.id(), roomId, sender.username(), send.content(), ChatClock.now(), sender.isAnonymous());
+        long enqueueStart = System.nanoTime();
+        // Persisted asynchronously so the broadcast never waits on the database
+        messageJournal.append(chatMessage);
+        chatMetrics.recordEnqueue(enqueueStart);
+        // Other nodes clear the sender's typing state when the message reaches them
+        typingAggregator.typingStopped(roomId, sender.username());
         
-        // Broadcast message to all connected clients
-        Map<String, Object> response = Map.of(
-            "type", "message",
-            "message", messageData
-        );
+        log.trace("Message {} from {}", chatMessage.id(), sender.username());
         
-        broadcastMessage(objectMapper.writeValueAsString(response));
+        // Broadcast to everyone in the sender's room, on this node and the others
+        long broadcastStart = System.nanoTime();
+        clusterRelay.messagePosted(chatMessage);
+        chatMetrics.recordBroadcast(broadcastStart);
     }
 
-    private void handleUserLeave(WebSocketSession session) throws IOException {
-        User user = sessionUsers.get(session.getId());
+    // resumable: the connection dropped rather than the user leaving, so the user stays
+    // online for the resume grace period
+    private void handleUserLeave(WebSocketSession session, boolean resumable) throws IOException {
+        // Removing first makes leave idempotent when user_leave and connection close both arrive
+        User user = sessionUsers.remove(session.getId());
         if (user != null) {
-            onlineUsers.remove(user);
-            sessionUsers.remove(session.getId());
-            
-            System.out.println("👋 User left: " + user.getUsername());
-            
-            Map<String, Object> response = Map.of(
-                "type", "user_left",
-                "username", user.getUsername(),
-                "users", onlineUsers,
-                "timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
-            );
-            
-            broadcastMessage(objectMapper.writeValueAsString(response));
+            String roomId = roomRegistry.leave(session.getId());
+            clearTyping(user, roomId);
+            if (resumable && sessionResumption.detach(session.getId(), user, roomId)) {
+                log.debug("User detached: {}", user);
+            } else {
+                clusterRelay.userLeft(user);
+                log.debug("User left: {}", user);
+            }
         }
-        sessions.remove(session.getId());
+        sessionResumption.revoke(session.getId());
+        broadcastEngine.unregister(session.getId());
     }
 
-    private void handleTypingStart(WebSocketSession session, Map<String, Object> data) throws IOException {
+    private void handleTypingStart(WebSocketSession session) {
         User user = sessionUsers.get(session.getId());
-        if (user != null) {
-            Map<String, Object> response = Map.of(
-                "type", "typing_start",
-                "username", user.getUsername(),
-                "timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
-            );
-            
-            broadcastMessageExcept(objectMapper.writeValueAsString(response), session);
+        String roomId = roomRegistry.roomOf(session.getId());
+        if (user != null && roomId != null) {
+            // Coalesced into one typing_users frame, and one cluster event, per room per interval
+            typingAggregator.typingStarted(roomId, user.username());
         }
     }
 
-    private void handleTypingStop(WebSocketSession session, Map<String, Object> data) throws IOException {
+    private void handleTypingStop(WebSocketSession session) {
         User user = sessionUsers.get(session.getId());
-        if (user != null) {
-            Map<String, Object> response = Map.of(
-                "type", "typing_stop",
-                "username", user.getUsername(),
-                "timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
-            );
-            
-            broadcastMessageExcept(objectMapper.writeValueAsString(response), session);
+        String roomId = roomRegistry.roomOf(session.getId());
+        if (user != null && roomId != null) {
+            typingAggregator.typingStopped(roomId, user.username());
         }
     }
 
-    private void sendRecentMessages(WebSocketSession session) throws IOException {
-        List<Map<String, Object>> recentMessages = databaseService.getRecentMessages(50);
-        
-        Map<String, Object> response = Map.of(
-            "type", "message_history",
-            "messages", recentMessages
-        );
-        
-        if (session.isOpen()) {
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+    private void clearTyping(User user, String roomId) {
+        if (user != null && roomId != null) {
+            typingAggregator.typingStopped(roomId, user.username());
         }
     }
 
-    private void broadcastMessage(String message) {
-        sessions.values().forEach(session -> {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(new TextMessage(message));
-                }
-            } catch (IOException e) {
-                System.err.println("❌ Error broadcasting message: " + e.getMessage());
-            }
-        });
+    private void sendError(WebSocketSession session, String message) throws IOException {
+        broadcastEngine.send(session.getId(), OutboundFrame.text(protocolCodec.encodeError(message)));
     }
 
-    private void broadcastMessageExcept(String message, WebSocketSession excludeSession) {
-        sessions.values().forEach(session -> {
-            try {
-                if (session.isOpen() && !session.equals(excludeSession)) {
-                    session.sendMessage(new TextMessage(message));
-                }
-            } catch (IOException e) {
-                System.err.println("❌ Error broadcasting message: " + e.getMessage());
-            }
-        });
+    private void sendSession(WebSocketSession session, String type, String resumeToken, String roomId) throws IOException {
+        broadcastEngine.send(session.getId(), OutboundFrame.text(protocolCodec.encodeSession(type, resumeToken, roomId)));
     }
 
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
-        System.err.println("🚨 Transport error for session " + session.getId() + ": " + exception.getMessage());
-        handleUserLeave(session);
+        log.debug("Transport error for session {}: {}", session.getId(), exception.getMessage());
+        handleUserLeave(session, true);
+        rateLimiter.unregister(session.getId());
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
-        System.out.println("🔌 Connection closed: " + session.getId() + " - " + closeStatus.toString());
-        handleUserLeave(session);
+        log.debug("Connection closed: {} - {}", session.getId(), closeStatus);
+        // A normal close is the client hanging up on purpose; anything else may be a network drop.
+        // Nothing resumes on a node that is shutting down, so drained users leave right away.
+        handleUserLeave(session, chatLifecycle.isAccepting() && !CloseStatus.NORMAL.equalsCode(closeStatus));
+        rateLimiter.unregister(session.getId());
     }
 
     @Override
@@ -220,49 +373,14 @@ public class ChatWebSocketHandler implements WebSocketHandler {
         return false;
     }
 
-    // User class
-    public static class User {
-        private String id;
-        private String username;
-        private boolean isAnonymous;
-        private LocalDateTime joinTime;
-
-        public User(String id, String username, boolean isAnonymous) {
-            this.id = id;
-            this.username = username;
-            this.isAnonymous = isAnonymous;
-            this.joinTime = LocalDateTime.now();
-        }
-
-        // Getters and setters
-        public String getId() { return id; }
-        public void setId(String id) { this.id = id; }
-        
-        public String getUsername() { return username; }
-        public void setUsername(String username) { this.username = username; }
-        
-        public boolean isAnonymous() { return isAnonymous; }
-        public void setAnonymous(boolean anonymous) { isAnonymous = anonymous; }
-        
-        public LocalDateTime getJoinTime() { return joinTime; }
-        public void setJoinTime(LocalDateTime joinTime) { this.joinTime = joinTime; }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) return true;
-            if (obj == null || getClass() != obj.getClass()) return false;
-            User user = (User) obj;
-            return id.equals(user.id);
-        }
-
-        @Override
-        public int hashCode() {
-            return id.hashCode();
-        }
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(WireFormat.CBOR.subprotocol(), WireFormat.JSON.subprotocol());
+    }
 
-        @Override
-        public String toString() {
-            return "User{id='" + id + "', username='" + username + "', isAnonymous=" + isAnonymous + "}";
-        }
+    // Immutable, so the instance created at join is shared by the session map, presence,
+    // activity tracking and resume state instead of being copied. Equal by value; presence
+    // and activity key it by id.
+    public record User(String id, String username, boolean isAnonymous) {
     }
 }
@@ -0,0 +1,29 @@
+package com.chatapp;
+
+import java.util.UUID;
+
+// Pluggable transport between chat nodes. publish() stamps the event with this node's id
+// and the next sequence number; events from one origin reach every node in publish order.
+// Implementations may echo a node's own events back to it, so listeners skip their own origin.
+public interface ClusterBus {
+
+    String nodeId();
+
+    void publish(ClusterProtocol.Event event);
+
+    void subscribe(Listener listener);
+
+    // Node ids are unique per process start, so a restarted node is a new origin with a fresh sequence
+    static String newNodeId(String nodeName) {
+        return nodeName + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    interface Listener {
+
+        void onEvent(ClusterProtocol.Envelope envelope);
+
+        // Called after the transport reconnects; events published meanwhile may be lost
+        default void onReconnected() {
+        }
+    }
+}
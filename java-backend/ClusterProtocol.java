@@ -0,0 +1,82 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.util.List;
+
+// Events exchanged between nodes over the ClusterBus. Every event travels in an Envelope
+// stamped with the origin node and that node's sequence number, which receivers use to
+// drop duplicates and detect gaps.
+public final class ClusterProtocol {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder()
+        .addModule(new JavaTimeModule())
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+        .build();
+    private static final ObjectWriter ENVELOPE_WRITER = MAPPER.writerFor(Envelope.class);
+    private static final ObjectReader ENVELOPE_READER = MAPPER.readerFor(Envelope.class);
+
+    private ClusterProtocol() {
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "kind")
+    @JsonSubTypes({
+        @JsonSubTypes.Type(value = MessagePosted.class, name = "message"),
+        @JsonSubTypes.Type(value = PresenceChanged.class, name = "presence"),
+        @JsonSubTypes.Type(value = PresenceReplay.class, name = "presence_replay"),
+        @JsonSubTypes.Type(value = TypingState.class, name = "typing_state"),
+        @JsonSubTypes.Type(value = Heartbeat.class, name = "heartbeat"),
+        @JsonSubTypes.Type(value = SyncRequest.class, name = "sync_request"),
+        @JsonSubTypes.Type(value = NodeLeft.class, name = "node_left")
+    })
+    public sealed interface Event {
+    }
+
+    public record MessagePosted(ChatMessage message) implements Event {
+    }
+
+    public record PresenceChanged(String userId, String username, boolean anonymous, boolean online) implements Event {
+    }
+
+    // A node's local online users, sent in chunks; the first chunk (reset) replaces
+    // everything previously known from that node
+    public record PresenceReplay(boolean reset, List<PresenceEntry> users) implements Event {
+    }
+
+    public record PresenceEntry(String userId, String username, boolean anonymous, int sessions) {
+    }
+
+    // Everyone typing in the room on the origin node; replaces the origin's previous set
+    public record TypingState(String roomId, List<String> usernames) implements Event {
+    }
+
+    public record Heartbeat() implements Event {
+    }
+
+    public record SyncRequest() implements Event {
+    }
+
+    public record NodeLeft() implements Event {
+    }
+
+    public record Envelope(String origin, long seq, Event event) {
+    }
+
+    public static String encode(Envelope envelope) {
+        try {
+            return ENVELOPE_WRITER.writeValueAsString(envelope);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unencodable cluster event: " + envelope.event(), e);
+        }
+    }
+
+    public static Envelope decode(String payload) throws JsonProcessingException {
+        return ENVELOPE_READER.readValue(payload);
+    }
+}
@@ -0,0 +1,251 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+// Publishes chat messages and presence changes to the other nodes and applies theirs
+// locally, along with the typing state TypingAggregator publishes. Local sessions are served
+// first and the event is published under the same room lock.
+//
+// Ordering holds per origin node: every node delivers one origin's messages for a room in
+// the order they were posted there, but messages from different origins may interleave
+// differently on each node. Each node numbers the messages of a room in its own
+// RecentMessageCache, so the same message has a different seq on each node. That is safe
+// for resumes only because resume tokens are held by the node that issued them: a client
+// reconnecting to another node gets session_expired and joins with the full history, and
+// never has its lastSeq replayed against another node's numbering.
+//
+// Nodes heartbeat; a node that goes quiet for node-timeout-ms has its users dropped.
+@Component
+public class ClusterRelay implements ClusterBus.Listener {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterRelay.class);
+
+    // Keeps presence replay chunks well under the 8000-byte NOTIFY payload limit
+    private static final int REPLAY_CHUNK_SIZE = 40;
+
+    @Value("${app.chat.cluster.heartbeat-interval-ms:2000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${app.chat.cluster.node-timeout-ms:10000}")
+    private long nodeTimeoutMs;
+
+    @Autowired
+    private ClusterBus clusterBus;
+
+    @Autowired
+    private BroadcastEngine broadcastEngine;
+
+    @Autowired
+    private RoomRegistry roomRegistry;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Autowired
+    private TypingAggregator typingAggregator;
+
+    @Autowired
+    private ProtocolCodec protocolCodec;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    @Autowired
+    private ChatThreads chatThreads;
+
+    private final Map<String, Object> roomLocks = new ConcurrentHashMap<>();
+    private final Object presenceLock = new Object();
+    private final Map<String, RemoteNode> nodes = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> heartbeats;
+
+    @PostConstruct
+    public void start() {
+        clusterBus.subscribe(this);
+        // Ask running nodes for their online users
+        clusterBus.publish(new ClusterProtocol.SyncRequest());
+        heartbeats = chatThreads.scheduleAtFixedRate("cluster-heartbeat", this::heartbeat, heartbeatIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeats.cancel(false);
+        clusterBus.publish(new ClusterProtocol.NodeLeft());
+    }
+
+    // The message is numbered in the room's log and encoded under the room lock, so local
+    // sessions receive seqs in order
+    public void messagePosted(ChatMessage message) throws JsonProcessingException {
+        synchronized (roomLock(message.roomId())) {
+            long seq = recentMessageCache.append(message);
+            broadcastToRoom(message.roomId(), OutboundFrame.text(protocolCodec.encodeMessage(message, seq)));
+            clusterBus.publish(new ClusterProtocol.MessagePosted(message));
+        }
+    }
+
+    // Moves the session into the room and queues roomJoined and the room's history. Like
+    // rejoin, under the room lock, so a message is either in the history or sent after it.
+    // Returns the room the session was in before, if any.
+    public String join(String sessionId, String roomId, OutboundFrame roomJoined) {
+        synchronized (roomLock(roomId)) {
+            String previous = roomRegistry.join(sessionId, roomId);
+            broadcastEngine.send(sessionId, roomJoined);
+            // Served from the ring buffer; the frame is only re-encoded after new messages
+            broadcastEngine.send(sessionId, recentMessageCache.historyFrame(roomId));
+            return previous;
+        }
+    }
+
+    // Puts a resumed session back into its room and queues the messages it missed. Under the
+    // room lock, every message reaches the session exactly once: in the replay or live after
+    // it. Returns false, leaving the session outside the room, when the log no longer
+    // reaches back to lastSeq.
+    public boolean rejoin(String sessionId, String roomId, long lastSeq) {
+        synchronized (roomLock(roomId)) {
+            OutboundFrame replay = recentMessageCache.replayFrame(roomId, lastSeq);
+            if (replay == null) {
+                return false;
+            }
+            roomRegistry.join(sessionId, roomId);
+            broadcastEngine.send(sessionId, replay);
+            return true;
+        }
+    }
+
+    // Presence changes are published under one lock so each node applies a user's
+    // joins and leaves in the order they happened here
+    public void userJoined(ChatWebSocketHandler.User user) {
+        synchronized (presenceLock) {
+            presenceService.join(user);
+            clusterBus.publish(new ClusterProtocol.PresenceChanged(user.id(), user.username(), user.isAnonymous(), true));
+        }
+    }
+
+    public void userLeft(ChatWebSocketHandler.User user) {
+        synchronized (presenceLock) {
+            presenceService.leave(user);
+            clusterBus.publish(new ClusterProtocol.PresenceChanged(user.id(), user.username(), user.isAnonymous(), false));
+        }
+    }
+
+    // Called on the bus delivery thread, one event at a time
+    @Override
+    public void onEvent(ClusterProtocol.Envelope envelope) {
+        String origin = envelope.origin();
+        if (origin.equals(clusterBus.nodeId())) {
+            return;
+        }
+        RemoteNode node = nodes.get(origin);
+        if (node == null) {
+            node = new RemoteNode();
+            nodes.put(origin, node);
+            // A node we have not heard from may already have users online
+            if (!(envelope.event() instanceof ClusterProtocol.SyncRequest)) {
+                clusterBus.publish(new ClusterProtocol.SyncRequest());
+            }
+        } else if (envelope.seq() <= node.lastSeq) {
+            return;
+        } else if (envelope.seq() != node.lastSeq + 1) {
+            chatMetrics.countClusterGap();
+            log.warn("Missed {} cluster events from {}; requesting a presence sync", envelope.seq() - node.lastSeq - 1, origin);
+            clusterBus.publish(new ClusterProtocol.SyncRequest());
+        }
+        node.lastSeq = envelope.seq();
+        node.lastSeenMillis = System.currentTimeMillis();
+        chatMetrics.countClusterEvent();
+
+        ClusterProtocol.Event event = envelope.event();
+        if (event instanceof ClusterProtocol.MessagePosted posted) {
+            deliverRemoteMessage(origin, posted.message());
+        } else if (event instanceof ClusterProtocol.PresenceChanged change) {
+            presenceService.applyRemote(origin, new ChatWebSocketHandler.User(change.userId(), change.username(), change.anonymous()), change.online());
+        } else if (event instanceof ClusterProtocol.PresenceReplay replay) {
+            presenceService.replayRemote(origin, replay.reset(), replay.users());
+        } else if (event instanceof ClusterProtocol.TypingState typing) {
+            typingAggregator.applyRemote(origin, typing.roomId(), typing.usernames());
+        } else if (event instanceof ClusterProtocol.SyncRequest) {
+            replayPresence();
+        } else if (event instanceof ClusterProtocol.NodeLeft) {
+            dropNode(origin);
+        }
+    }
+
+    @Override
+    public void onReconnected() {
+        clusterBus.publish(new ClusterProtocol.SyncRequest());
+    }
+
+    private void deliverRemoteMessage(String origin, ChatMessage message) {
+        if (!roomRegistry.exists(message.roomId())) {
+            return;
+        }
+        typingAggregator.remoteStopped(origin, message.roomId(), message.username());
+        synchronized (roomLock(message.roomId())) {
+            long seq = recentMessageCache.append(message);
+            try {
+                broadcastToRoom(message.roomId(), OutboundFrame.text(protocolCodec.encodeMessage(message, seq)));
+            } catch (JsonProcessingException e) {
+                log.warn("Error encoding cluster message {}", message.id(), e);
+            }
+        }
+    }
+
+    private void replayPresence() {
+        synchronized (presenceLock) {
+            List<ClusterProtocol.PresenceEntry> entries = presenceService.localEntries();
+            int from = 0;
+            do {
+                int to = Math.min(from + REPLAY_CHUNK_SIZE, entries.size());
+                clusterBus.publish(new ClusterProtocol.PresenceReplay(from == 0, List.copyOf(entries.subList(from, to))));
+                from = to;
+            } while (from < entries.size());
+        }
+    }
+
+    private void heartbeat() {
+        clusterBus.publish(new ClusterProtocol.Heartbeat());
+        long cutoff = System.currentTimeMillis() - nodeTimeoutMs;
+        nodes.forEach((origin, node) -> {
+            if (node.lastSeenMillis < cutoff) {
+                log.warn("Cluster node {} timed out", origin);
+                dropNode(origin);
+            }
+        });
+    }
+
+    private void dropNode(String origin) {
+        nodes.remove(origin);
+        presenceService.dropRemote(origin);
+        typingAggregator.dropRemote(origin);
+    }
+
+    // Called under the room lock. The fan-out worker reaches the frame later, so it gets the
+    // members as of now: a session joining in between already has the message in its
+    // history or replay frame.
+    private void broadcastToRoom(String roomId, OutboundFrame frame) {
+        broadcastEngine.broadcastTo(List.copyOf(roomRegistry.members(roomId)), frame, null);
+    }
+
+    private Object roomLock(String roomId) {
+        return roomLocks.computeIfAbsent(roomId, id -> new Object());
+    }
+
+    private static final class RemoteNode {
+        // Only touched by the bus delivery thread
+        private long lastSeq;
+        private volatile long lastSeenMillis;
+    }
+}
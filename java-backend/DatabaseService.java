@@ -1,38 +1,58 @@
 package com.chatapp;
 
-import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class DatabaseService {
     
-    @Value("${spring.datasource.url}")
-    private String databaseUrl;
-    
-    @Value("${spring.datasource.username}")
-    private String databaseUsername;
-    
-    @Value("${spring.datasource.password}")
-    private String databasePassword;
+    private static final Logger log = LoggerFactory.getLogger(DatabaseService.class);
+
+    // Rows per UPDATE ... FROM (VALUES ...), two parameters each
+    private static final int ACTIVITY_CHUNK_SIZE = 1000;
+
+    // pg_get_expr form of a range partition bound, e.g.
+    // FOR VALUES FROM ('2024-05-01 00:00:00') TO ('2024-05-02 00:00:00')
+    private static final Pattern PARTITION_BOUNDS =
+        Pattern.compile("FROM \\((?:MINVALUE|'([^']+)')\\) TO \\('([^']+)'\\)");
+
+    // Pooled DataSource (HikariCP) configured from spring.datasource.* and
+    // spring.datasource.hikari.*; closing a connection returns it to the pool.
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
 
     public Connection getConnection() throws SQLException {
-        try {
-            Class.forName("org.postgresql.Driver");
-            return DriverManager.getConnection(databaseUrl, databaseUsername, databasePassword);
-        } catch (ClassNotFoundException e) {
-            throw new SQLException("PostgreSQL driver not found", e);
-        }
+        return dataSource.getConnection();
     }
 
+    // Runs when the service is created, before the components that read these tables at
+    // startup (they all depend on this service); every statement is idempotent
+    @PostConstruct
     public void initializeDatabase() {
-        System.out.println("🗄️ Initializing database...");
+        log.info("Initializing database schema");
         
         String createUsersTable = """
             CREATE TABLE IF NOT EXISTS users (
@@ -44,69 +64,217 @@ public class DatabaseService {
             )
         """;
         
+        // Databases created before partitioning keep their rows: the old table is renamed
+        // (with its indexes, so the names are free for the new table) and attached below
+        String renameLegacyMessages = """
+            DO $$
+            DECLARE
+                idx record;
+            BEGIN
+                IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('messages') AND relkind = 'r') THEN
+                    ALTER TABLE messages RENAME TO messages_legacy;
+                    FOR idx IN SELECT indexname FROM pg_indexes
+                               WHERE schemaname = current_schema() AND tablename = 'messages_legacy' LOOP
+                        EXECUTE format('ALTER INDEX %I RENAME TO %I', idx.indexname, 'legacy_' || idx.indexname);
+                    END LOOP;
+                END IF;
+            END $$
+        """;
+        
+        // Range-partitioned on timestamp so retention drops whole partitions instead of
+        // deleting rows; MessagePartitions creates the partitions ahead of time
         String createMessagesTable = """
             CREATE TABLE IF NOT EXISTS messages (
-                id VARCHAR(255) PRIMARY KEY,
+                id VARCHAR(255) NOT NULL,
                 username VARCHAR(50) NOT NULL,
                 content TEXT NOT NULL,
-                timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
                 is_anonymous BOOLEAN DEFAULT FALSE,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                room_id VARCHAR(255) NOT NULL DEFAULT 'room_general',
+                PRIMARY KEY (id, timestamp)
+            ) PARTITION BY RANGE (timestamp)
+        """;
+        
+        // The old table becomes the partition holding everything up to the end of its
+        // newest day; retention drops it once that day has expired. Its primary key on id
+        // gives way to the (id, timestamp) key every partition must have.
+        String attachLegacyMessages = """
+            DO $$
+            DECLARE
+                upper_bound timestamp;
+                pkey text;
+            BEGIN
+                IF to_regclass('messages_legacy') IS NOT NULL
+                   AND NOT EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = to_regclass('messages_legacy')) THEN
+                    SELECT conname INTO pkey FROM pg_constraint
+                    WHERE conrelid = to_regclass('messages_legacy') AND contype = 'p';
+                    IF pkey IS NOT NULL THEN
+                        EXECUTE format('ALTER TABLE messages_legacy DROP CONSTRAINT %I', pkey);
+                    END IF;
+                    ALTER TABLE messages_legacy ADD COLUMN IF NOT EXISTS room_id VARCHAR(255) NOT NULL DEFAULT 'room_general';
+                    UPDATE messages_legacy SET timestamp = COALESCE(created_at, CURRENT_TIMESTAMP) WHERE timestamp IS NULL;
+                    ALTER TABLE messages_legacy ALTER COLUMN timestamp SET NOT NULL;
+                    SELECT date_trunc('day', COALESCE(max(timestamp), CURRENT_TIMESTAMP)) + INTERVAL '1 day'
+                    INTO upper_bound FROM messages_legacy;
+                    EXECUTE format('ALTER TABLE messages ATTACH PARTITION messages_legacy FOR VALUES FROM (MINVALUE) TO (%L)', upper_bound);
+                END IF;
+            END $$
+        """;
+        
+        // Full-text search: PostgreSQL computes the vector on every insert, and the GIN index
+        // on the parent is created on each partition, present and future. Added after the
+        // legacy attach so the old table gains the column too.
+        String addSearchColumn = """
+            ALTER TABLE messages ADD COLUMN IF NOT EXISTS content_tsv TSVECTOR
+                GENERATED ALWAYS AS (to_tsvector('english', content)) STORED
+        """;
+        
+        String createChatRoomsTable = """
+            CREATE TABLE IF NOT EXISTS chat_rooms (
+                id VARCHAR(255) PRIMARY KEY,
+                name VARCHAR(100) NOT NULL,
+                description TEXT,
+                is_private BOOLEAN DEFAULT FALSE,
                 created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-            )
+            );
+            INSERT INTO chat_rooms (id, name, description, is_private)
+            VALUES ('room_general', 'General Chat', 'Main chat room for everyone', false)
+            ON CONFLICT (id) DO NOTHING;
         """;
         
+        // (room_id, timestamp, id) serves both recent history and keyset paging; it supersedes
+        // the older (room_id, timestamp) index
         String createIndexes = """
+            CREATE INDEX IF NOT EXISTS idx_messages_room_timestamp_id ON messages(room_id, timestamp, id);
+            DROP INDEX IF EXISTS idx_messages_room_timestamp;
             CREATE INDEX IF NOT EXISTS idx_messages_timestamp ON messages(timestamp);
             CREATE INDEX IF NOT EXISTS idx_users_last_active ON users(last_active);
             CREATE INDEX IF NOT EXISTS idx_messages_username ON messages(username);
+            CREATE INDEX IF NOT EXISTS idx_messages_content_tsv ON messages USING GIN (content_tsv);
         """;
         
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
             
             stmt.execute(createUsersTable);
+            stmt.execute(renameLegacyMessages);
             stmt.execute(createMessagesTable);
+            stmt.execute(attachLegacyMessages);
+            stmt.execute(addSearchColumn);
+            stmt.execute(createChatRoomsTable);
             stmt.execute(createIndexes);
             
-            System.out.println("✅ Database initialized successfully");
+            log.info("Database schema initialized");
             
         } catch (SQLException e) {
-            System.err.println("❌ Error initializing database: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error initializing database", e);
         }
     }
 
-    public void saveMessage(String id, String username, String content, boolean isAnonymous) {
-        String sql = "INSERT INTO messages (id, username, content, timestamp, is_anonymous) VALUES (?, ?, ?, ?, ?)";
+    public void saveMessage(String id, String roomId, String username, String content, boolean isAnonymous) {
+        String sql = "INSERT INTO messages (id, room_id, username, content, timestamp, is_anonymous) VALUES (?, ?, ?, ?, ?, ?)";
         
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, id);
-            stmt.setString(2, username);
-            stmt.setString(3, content);
-            stmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setBoolean(5, isAnonymous);
+            stmt.setString(2, roomId);
+            stmt.setString(3, username);
+            stmt.setString(4, content);
+            stmt.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.setBoolean(6, isAnonymous);
             
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
-                System.out.println("💾 Message saved: " + id);
+            if (stmt.executeUpdate() > 0) {
+                log.trace("Message saved: {}", id);
             }
             
         } catch (SQLException e) {
-            System.err.println("❌ Error saving message: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error saving message", e);
+        } finally {
+            chatMetrics.recordDb("saveMessage", start);
+        }
+    }
+
+    // One transaction per batch. If the table rejects a row, the messages are inserted one by
+    // one and the rejected ones are logged and skipped, so one bad row does not lose the
+    // rest. Returns how many were written. Any other error, such as a lost connection, is
+    // thrown for the caller to retry; rows a failed attempt did commit are skipped by
+    // ON CONFLICT DO NOTHING the next time.
+    public int saveMessages(List<ChatMessage> messages) throws SQLException {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        String sql = """
+            INSERT INTO messages (id, room_id, username, content, timestamp, is_anonymous)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+        
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            conn.setAutoCommit(false);
+            try {
+                for (ChatMessage message : messages) {
+                    bindMessage(stmt, message);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+                return messages.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                log.warn("Saving {} messages as a batch failed; retrying one by one", messages.size());
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            
+            stmt.clearBatch();
+            int written = 0;
+            for (ChatMessage message : messages) {
+                try {
+                    bindMessage(stmt, message);
+                    stmt.executeUpdate();
+                    written++;
+                } catch (SQLException e) {
+                    if (!isConstraintViolation(e)) {
+                        throw e;
+                    }
+                    log.error("Dropping message {} in {}: {}", message.id(), message.roomId(), e.getMessage());
+                }
+            }
+            return written;
+            
+        } finally {
+            chatMetrics.recordDb("saveMessages", start);
         }
     }
 
-    public List<Map<String, Object>> getRecentMessages(int limit) {
-        String sql = "SELECT id, username, content, timestamp, is_anonymous FROM messages ORDER BY timestamp DESC LIMIT ?";
+    private static void bindMessage(PreparedStatement stmt, ChatMessage message) throws SQLException {
+        stmt.setString(1, message.id());
+        stmt.setString(2, message.roomId());
+        stmt.setString(3, message.username());
+        stmt.setString(4, message.content());
+        stmt.setTimestamp(5, Timestamp.valueOf(message.timestamp()));
+        stmt.setBoolean(6, message.isAnonymous());
+    }
+
+    public List<Map<String, Object>> getRecentMessages(String roomId, int limit) {
+        String sql = "SELECT id, username, content, timestamp, is_anonymous FROM messages WHERE room_id = ? ORDER BY timestamp DESC LIMIT ?";
         List<Map<String, Object>> messages = new ArrayList<>();
         
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setInt(1, limit);
+            stmt.setString(1, roomId);
+            stmt.setInt(2, limit);
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
@@ -123,109 +291,515 @@ public class DatabaseService {
             java.util.Collections.reverse(messages);
             
         } catch (SQLException e) {
-            System.err.println("❌ Error fetching messages: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error fetching messages", e);
+        } finally {
+            chatMetrics.recordDb("getRecentMessages", start);
         }
         
         return messages;
     }
 
-    public void saveUser(String id, String username, boolean isAnonymous) {
-        String sql = """
-            INSERT INTO users (id, username, is_anonymous, created_at, last_active) 
-            VALUES (?, ?, ?, ?, ?) 
-            ON CONFLICT (username) 
-            DO UPDATE SET last_active = EXCLUDED.last_active
-        """;
+    public List<ChatMessage> loadRecentMessages(String roomId, int limit) {
+        String sql = "SELECT id, username, content, timestamp, is_anonymous FROM messages WHERE room_id = ? ORDER BY timestamp DESC LIMIT ?";
+        List<ChatMessage> messages = new ArrayList<>();
         
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
-            stmt.setString(1, id);
-            stmt.setString(2, username);
-            stmt.setBoolean(3, isAnonymous);
-            stmt.setTimestamp(4, now);
-            stmt.setTimestamp(5, now);
+            stmt.setString(1, roomId);
+            stmt.setInt(2, limit);
+            ResultSet rs = stmt.executeQuery();
             
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
-                System.out.println("👤 User saved: " + username);
+            while (rs.next()) {
+                messages.add(new ChatMessage(
+                    rs.getString("id"),
+                    roomId,
+                    rs.getString("username"),
+                    rs.getString("content"),
+                    rs.getTimestamp("timestamp").toLocalDateTime(),
+                    rs.getBoolean("is_anonymous")
+                ));
             }
             
+            // Reverse to get chronological order
+            java.util.Collections.reverse(messages);
+            
         } catch (SQLException e) {
-            System.err.println("❌ Error saving user: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error loading recent messages", e);
+        } finally {
+            chatMetrics.recordDb("loadRecentMessages", start);
         }
+        
+        return messages;
+    }
+
+    // Receives history rows as they are read, so pages are encoded without building a list
+    public interface HistoryRowHandler {
+        void row(String id, String username, String content, LocalDateTime timestamp, boolean isAnonymous) throws IOException;
     }
 
-    public void updateUserActivity(String username) {
-        String sql = "UPDATE users SET last_active = ? WHERE username = ?";
+    // One page of a room's history, newest first, older than the cursor. Keyset pagination on
+    // (timestamp, id) walks idx_messages_room_timestamp_id backwards, so a page costs the same
+    // at any depth. Returns the cursor for the next page, or null when no older rows remain.
+    public HistoryCursor streamHistory(String roomId, HistoryCursor before, int limit, HistoryRowHandler handler)
+            throws SQLException, IOException {
+        String sql = before == null
+            ? "SELECT id, username, content, timestamp, is_anonymous FROM messages WHERE room_id = ? ORDER BY timestamp DESC, id DESC LIMIT ?"
+            : "SELECT id, username, content, timestamp, is_anonymous FROM messages WHERE room_id = ? AND (timestamp, id) < (?, ?) ORDER BY timestamp DESC, id DESC LIMIT ?";
         
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
-            stmt.setString(2, username);
-            
-            stmt.executeUpdate();
+            int index = 1;
+            stmt.setString(index++, roomId);
+            if (before != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(before.timestamp()));
+                stmt.setString(index++, before.id());
+            }
+            // One extra row tells whether an older page exists
+            stmt.setInt(index, limit + 1);
             
-        } catch (SQLException e) {
-            System.err.println("❌ Error updating user activity: " + e.getMessage());
-            e.printStackTrace();
+            try (ResultSet rs = stmt.executeQuery()) {
+                int rows = 0;
+                String lastId = null;
+                LocalDateTime lastTimestamp = null;
+                while (rs.next()) {
+                    if (rows++ == limit) {
+                        return new HistoryCursor(lastTimestamp, lastId);
+                    }
+                    lastId = rs.getString("id");
+                    lastTimestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+                    handler.row(lastId, rs.getString("username"), rs.getString("content"), lastTimestamp, rs.getBoolean("is_anonymous"));
+                }
+                return null;
+            }
+        } finally {
+            chatMetrics.recordDb("streamHistory", start);
         }
     }
 
-    public List<Map<String, Object>> getActiveUsers(int minutesThreshold) {
+    // Messages matching a web-search style query ("quoted phrases", or, -excluded), best
+    // match first, optionally within one room. Every match is ranked before the page is cut,
+    // so a keyset cursor would save no work; pages are by offset. The query runs under
+    // statement_timeout, so a term that matches too much fails fast (SQLState 57014)
+    // instead of holding a connection. Returns up to limit + 1 hits, the extra one telling
+    // whether another page exists.
+    public List<SearchHit> searchMessages(String query, String roomId, int offset, int limit, long timeoutMs)
+            throws SQLException {
         String sql = """
-            SELECT id, username, is_anonymous, last_active 
-            FROM users 
-            WHERE last_active > ? 
-            ORDER BY last_active DESC
-        """;
-        
-        List<Map<String, Object>> users = new ArrayList<>();
+            SELECT id, room_id, username, content, timestamp, is_anonymous, ts_rank(content_tsv, query) AS rank
+            FROM messages, websearch_to_tsquery('english', ?) AS query
+            WHERE content_tsv @@ query %s
+            ORDER BY rank DESC, timestamp DESC, id DESC
+            LIMIT ? OFFSET ?
+            """.formatted(roomId != null ? "AND room_id = ?" : "");
+        List<SearchHit> hits = new ArrayList<>();
         
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
+             Statement setup = conn.createStatement();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            LocalDateTime threshold = LocalDateTime.now().minusMinutes(minutesThreshold);
-            stmt.setTimestamp(1, Timestamp.valueOf(threshold));
+            conn.setAutoCommit(false);
+            try {
+                setup.execute("SET LOCAL statement_timeout = " + timeoutMs);
+                int index = 1;
+                stmt.setString(index++, query);
+                if (roomId != null) {
+                    stmt.setString(index++, roomId);
+                }
+                stmt.setInt(index++, limit + 1);
+                stmt.setInt(index, offset);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        hits.add(new SearchHit(
+                            rs.getString("id"),
+                            rs.getString("room_id"),
+                            rs.getString("username"),
+                            rs.getString("content"),
+                            rs.getTimestamp("timestamp").toLocalDateTime(),
+                            rs.getBoolean("is_anonymous"),
+                            rs.getFloat("rank")
+                        ));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
             
-            ResultSet rs = stmt.executeQuery();
+        } finally {
+            chatMetrics.recordDb("searchMessages", start);
+        }
+        return hits;
+    }
+
+    public record SearchHit(String id, String roomId, String username, String content,
+                            LocalDateTime timestamp, boolean isAnonymous, float rank) {
+    }
+
+    // Receives archived rows as they are read, so an export holds one fetch in memory
+    public interface ArchiveRowHandler {
+        void row(String id, String roomId, String username, String content, LocalDateTime timestamp, boolean isAnonymous) throws IOException;
+    }
+
+    // Every message, or one room's, in partition (roughly chronological) order. With
+    // autocommit off PgJDBC reads through a server-side cursor, fetchSize rows per round
+    // trip, instead of loading the whole result. Returns the number of rows read.
+    public long exportMessages(String roomId, int fetchSize, ArchiveRowHandler handler) throws SQLException, IOException {
+        String sql = roomId == null
+            ? "SELECT id, room_id, username, content, timestamp, is_anonymous FROM messages"
+            : "SELECT id, room_id, username, content, timestamp, is_anonymous FROM messages WHERE room_id = ?";
+
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                if (roomId != null) {
+                    stmt.setString(1, roomId);
+                }
+                stmt.setFetchSize(fetchSize);
+                long rows = 0;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        handler.row(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                            rs.getTimestamp(5).toLocalDateTime(), rs.getBoolean(6));
+                        rows++;
+                    }
+                }
+                return rows;
+            } finally {
+                // Read-only: ending the transaction closes the cursor
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            chatMetrics.recordDb("exportMessages", start);
+        }
+    }
+
+    // Writes message rows in COPY text format: id, room_id, username, content, timestamp,
+    // is_anonymous, tab-separated, one row per line
+    public interface CopyWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    // Called with the oldest and newest staged timestamps before the rows are inserted, so
+    // partitions can be created for them
+    public interface StagedRange {
+        void prepare(LocalDateTime oldest, LocalDateTime newest) throws SQLException;
+    }
+
+    // Streams rows through COPY FROM STDIN into a temporary table, then inserts those from
+    // notBefore on into messages in one statement. Ids already present are skipped, so an
+    // archive can be imported again. Everything runs in one transaction: a bad row anywhere
+    // imports nothing.
+    public ImportResult importMessages(CopyWriter writer, LocalDateTime notBefore, StagedRange stagedRange)
+            throws SQLException, IOException {
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            try {
+                stmt.execute("""
+                    CREATE TEMP TABLE messages_import (
+                        id VARCHAR(255) NOT NULL,
+                        room_id VARCHAR(255) NOT NULL,
+                        username VARCHAR(50) NOT NULL,
+                        content TEXT NOT NULL,
+                        timestamp TIMESTAMP NOT NULL,
+                        is_anonymous BOOLEAN
+                    ) ON COMMIT DROP
+                """);
+                PGCopyOutputStream copy = new PGCopyOutputStream(conn.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn("COPY messages_import (id, room_id, username, content, timestamp, is_anonymous) FROM STDIN"), 1 << 16);
+                long copied;
+                try {
+                    writer.write(copy);
+                    copied = copy.endCopy();
+                } finally {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                }
+
+                try (PreparedStatement range = conn.prepareStatement(
+                        "SELECT min(timestamp), max(timestamp) FROM messages_import WHERE timestamp >= ?")) {
+                    range.setTimestamp(1, Timestamp.valueOf(notBefore));
+                    try (ResultSet rs = range.executeQuery()) {
+                        rs.next();
+                        if (rs.getTimestamp(1) != null) {
+                            stagedRange.prepare(rs.getTimestamp(1).toLocalDateTime(), rs.getTimestamp(2).toLocalDateTime());
+                        }
+                    }
+                }
+                long inserted;
+                try (PreparedStatement insert = conn.prepareStatement("""
+                        INSERT INTO messages (id, room_id, username, content, timestamp, is_anonymous)
+                        SELECT id, room_id, username, content, timestamp, is_anonymous FROM messages_import
+                        WHERE timestamp >= ?
+                        ON CONFLICT DO NOTHING
+                        """)) {
+                    insert.setTimestamp(1, Timestamp.valueOf(notBefore));
+                    inserted = insert.executeUpdate();
+                }
+                conn.commit();
+                return new ImportResult(copied, inserted);
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            chatMetrics.recordDb("importMessages", start);
+        }
+    }
+
+    // copied: rows in the archive; inserted: rows new to messages and within retention
+    public record ImportResult(long copied, long inserted) {
+    }
+
+    public List<String> getRoomIds() {
+        String sql = "SELECT id FROM chat_rooms";
+        List<String> roomIds = new ArrayList<>();
+        
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             
+            ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                Map<String, Object> user = new HashMap<>();
-                user.put("id", rs.getString("id"));
-                user.put("username", rs.getString("username"));
-                user.put("isAnonymous", rs.getBoolean("is_anonymous"));
-                user.put("lastActive", rs.getTimestamp("last_active").toLocalDateTime().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                users.add(user);
+                roomIds.add(rs.getString("id"));
             }
             
         } catch (SQLException e) {
-            System.err.println("❌ Error fetching active users: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error fetching chat rooms", e);
+        } finally {
+            chatMetrics.recordDb("getRoomIds", start);
         }
         
-        return users;
+        return roomIds;
     }
 
-    public void cleanupOldMessages(int daysToKeep) {
-        String sql = "DELETE FROM messages WHERE created_at < ?";
+    // First activity of users not yet stored, as one batch keyed on the id. If the batch
+    // fails, the rows are written one by one and a row the table rejects, such as a username
+    // already taken by another id, is logged and skipped so it cannot fail the others.
+    // Returns the ids of the skipped rows.
+    public Set<String> saveUsers(List<UserActivity> users) throws SQLException {
+        if (users.isEmpty()) {
+            return Set.of();
+        }
+        String sql = """
+            INSERT INTO users (id, username, is_anonymous, created_at, last_active)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (id)
+            DO UPDATE SET last_active = GREATEST(users.last_active, EXCLUDED.last_active)
+        """;
         
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            LocalDateTime cutoff = LocalDateTime.now().minusDays(daysToKeep);
-            stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+            try {
+                for (UserActivity user : users) {
+                    bindUser(stmt, user);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                log.debug("Saved {} users", users.size());
+                return Set.of();
+            } catch (SQLException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                log.warn("Saving {} users as a batch failed; retrying one by one", users.size());
+            }
             
-            int deletedRows = stmt.executeUpdate();
-            System.out.println("🧹 Cleaned up " + deletedRows + " old messages");
+            Set<String> rejected = new HashSet<>();
+            for (UserActivity user : users) {
+                try {
+                    bindUser(stmt, user);
+                    stmt.executeUpdate();
+                } catch (SQLException e) {
+                    if (!isConstraintViolation(e)) {
+                        throw e;
+                    }
+                    rejected.add(user.id());
+                    log.warn("Skipping activity of user {} ({}): {}", user.username(), user.id(), e.getMessage());
+                }
+            }
+            log.debug("Saved {} users, skipped {}", users.size() - rejected.size(), rejected.size());
+            return rejected;
             
-        } catch (SQLException e) {
-            System.err.println("❌ Error cleaning up old messages: " + e.getMessage());
-            e.printStackTrace();
+        } finally {
+            chatMetrics.recordDb("saveUsers", start);
+        }
+    }
+
+    private static void bindUser(PreparedStatement stmt, UserActivity user) throws SQLException {
+        Timestamp lastActive = Timestamp.valueOf(user.lastActive());
+        stmt.setString(1, user.id());
+        stmt.setString(2, user.username());
+        stmt.setBoolean(3, user.isAnonymous());
+        stmt.setTimestamp(4, lastActive);
+        stmt.setTimestamp(5, lastActive);
+    }
+
+    // SQLState class 23 (unique, not-null, check, ...) or 22 (bad data): the row itself is
+    // at fault, unlike a lost connection. A batch reports the cause as its next exception.
+    static boolean isConstraintViolation(SQLException e) {
+        for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+            String state = cause.getSQLState();
+            if (state != null && (state.startsWith("23") || state.startsWith("22"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // One UPDATE ... FROM (VALUES ...) per chunk instead of a statement per user. last_active
+    // only moves forward, so a late flush from another node cannot rewind it.
+    public void updateUserActivity(List<UserActivity> users) throws SQLException {
+        if (users.isEmpty()) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            for (int from = 0; from < users.size(); from += ACTIVITY_CHUNK_SIZE) {
+                List<UserActivity> chunk = users.subList(from, Math.min(from + ACTIVITY_CHUNK_SIZE, users.size()));
+                StringBuilder sql = new StringBuilder("UPDATE users AS u SET last_active = v.last_active FROM (VALUES ");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "(?, CAST(? AS timestamp))" : ", (?, CAST(? AS timestamp))");
+                }
+                sql.append(") AS v(id, last_active) WHERE u.id = v.id AND u.last_active < v.last_active");
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                    int index = 1;
+                    for (UserActivity user : chunk) {
+                        stmt.setString(index++, user.id());
+                        stmt.setTimestamp(index++, Timestamp.valueOf(user.lastActive()));
+                    }
+                    stmt.executeUpdate();
+                }
+            }
+            
+        } finally {
+            chatMetrics.recordDb("updateUserActivity", start);
         }
     }
+
+    public record UserActivity(String id, String username, boolean isAnonymous, LocalDateTime lastActive) {
+    }
+
+    // Partitions of messages with their [from, to) bounds; from is null for the partition
+    // that starts at MINVALUE
+    public List<MessagePartition> listMessagePartitions() throws SQLException {
+        String sql = """
+            SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+            FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = to_regclass('messages')
+            """;
+        List<MessagePartition> partitions = new ArrayList<>();
+        
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                Matcher bounds = PARTITION_BOUNDS.matcher(rs.getString(2));
+                if (!bounds.find()) {
+                    log.warn("Skipping partition {} with unexpected bounds {}", rs.getString(1), rs.getString(2));
+                    continue;
+                }
+                partitions.add(new MessagePartition(rs.getString(1),
+                    bounds.group(1) != null ? Timestamp.valueOf(bounds.group(1)).toLocalDateTime() : null,
+                    Timestamp.valueOf(bounds.group(2)).toLocalDateTime()));
+            }
+        } finally {
+            chatMetrics.recordDb("listMessagePartitions", start);
+        }
+        partitions.sort(Comparator.comparing(MessagePartition::to));
+        return partitions;
+    }
+
+    public void createMessagePartition(String name, LocalDateTime from, LocalDateTime to) throws SQLException {
+        // Identifiers and bounds are generated by MessagePartitions, never client input
+        String sql = "CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF messages FOR VALUES FROM ('"
+            + Timestamp.valueOf(from) + "') TO ('" + Timestamp.valueOf(to) + "')";
+        
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            
+            stmt.execute(sql);
+            log.info("Created message partition {} [{}, {})", name, from, to);
+            
+        } finally {
+            chatMetrics.recordDb("createMessagePartition", start);
+        }
+    }
+
+    // Detach and drop are catalog changes, so retiring a partition costs the same however
+    // many rows it holds. The row count for the retention metrics is the planner's estimate
+    // from pg_class rather than a scan. The parent is locked first, as the detach would lock
+    // it anyway, so a node racing on the same partition waits and then finds it gone; -1
+    // means nothing was left to drop. lock_timeout keeps this from queueing inserts behind
+    // a long-running transaction; the next maintenance run retries.
+    public long dropMessagePartition(String name) throws SQLException {
+        String sql = """
+            SELECT greatest(c.reltuples, 0)::bigint, i.inhrelid IS NOT NULL
+            FROM pg_class c LEFT JOIN pg_inherits i ON i.inhrelid = c.oid
+            WHERE c.oid = to_regclass(?)
+            """;
+        
+        long start = System.nanoTime();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             PreparedStatement lookup = conn.prepareStatement(sql)) {
+            
+            conn.setAutoCommit(false);
+            try {
+                stmt.execute("SET LOCAL lock_timeout = '5s'");
+                stmt.execute("LOCK TABLE messages IN ACCESS EXCLUSIVE MODE");
+                lookup.setString(1, name);
+                long rows;
+                boolean attached;
+                try (ResultSet rs = lookup.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        log.debug("Message partition {} already dropped", name);
+                        return -1;
+                    }
+                    rows = rs.getLong(1);
+                    attached = rs.getBoolean(2);
+                }
+                if (attached) {
+                    stmt.execute("ALTER TABLE messages DETACH PARTITION " + name);
+                }
+                stmt.execute("DROP TABLE IF EXISTS " + name);
+                conn.commit();
+                log.info("Dropped message partition {} (~{} rows)", name, rows);
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            
+        } finally {
+            chatMetrics.recordDb("dropMessagePartition", start);
+        }
+    }
+
+    public record MessagePartition(String name, LocalDateTime from, LocalDateTime to) {
+    }
 }
@@ -0,0 +1,42 @@
+package com.chatapp;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// REST access to paged room history:
+//   GET /api/rooms/{roomId}/messages?before={nextCursor}&limit=50
+// The body is streamed from the result set; follow nextCursor until it is null.
+@RestController
+public class HistoryController {
+
+    @Autowired
+    private MessageHistory messageHistory;
+
+    @Autowired
+    private RoomRegistry roomRegistry;
+
+    @GetMapping("/rooms/{roomId}/messages")
+    public ResponseEntity<StreamingResponseBody> messages(@PathVariable String roomId,
+                                                          @RequestParam(required = false) String before,
+                                                          @RequestParam(required = false) Integer limit) {
+        if (!roomRegistry.exists(roomId)) {
+            return ResponseEntity.notFound().build();
+        }
+        HistoryCursor cursor;
+        try {
+            cursor = HistoryCursor.parse(before);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = messageHistory.pageSize(limit);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(out -> messageHistory.writePage(out, roomId, cursor, pageSize));
+    }
+}
@@ -0,0 +1,33 @@
+package com.chatapp;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Keyset position in a room's history: the (timestamp, id) of the oldest message already
+// returned. Clients treat it as opaque; it travels as base64url of "timestamp|id".
+public record HistoryCursor(LocalDateTime timestamp, String id) {
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null or empty means "start from the newest message"
+    public static HistoryCursor parse(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed history cursor");
+            }
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed history cursor", e);
+        }
+    }
+}
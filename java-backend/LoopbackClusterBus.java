@@ -0,0 +1,90 @@
+package com.chatapp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// In-process bus, the default. A single node publishes into the void at no cost; several
+// application contexts in one JVM share NETWORK and exchange events as separate nodes would,
+// with the same JSON encoding as the Postgres bus. Each node consumes on its own thread.
+@Component
+@ConditionalOnProperty(name = "app.chat.cluster.bus", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackClusterBus implements ClusterBus {
+
+    private static final Logger log = LoggerFactory.getLogger(LoopbackClusterBus.class);
+
+    static final List<LoopbackClusterBus> NETWORK = new CopyOnWriteArrayList<>();
+
+    @Value("${app.chat.cluster.node-name:chat}")
+    private String nodeName;
+
+    private String nodeId;
+    private long seq;
+    private volatile Listener listener;
+    private ExecutorService dispatcher;
+
+    @PostConstruct
+    public void start() {
+        nodeId = ClusterBus.newNodeId(nodeName);
+        dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-cluster-loopback");
+            thread.setDaemon(true);
+            return thread;
+        });
+        NETWORK.add(this);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        NETWORK.remove(this);
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public synchronized void publish(ClusterProtocol.Event event) {
+        long next = ++seq;
+        if (NETWORK.size() <= 1) {
+            return;
+        }
+        String payload = ClusterProtocol.encode(new ClusterProtocol.Envelope(nodeId, next, event));
+        for (LoopbackClusterBus node : NETWORK) {
+            if (node != this) {
+                node.deliver(payload);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        this.listener = listener;
+    }
+
+    private void deliver(String payload) {
+        dispatcher.execute(() -> {
+            Listener current = listener;
+            if (current == null) {
+                return;
+            }
+            try {
+                current.onEvent(ClusterProtocol.decode(payload));
+            } catch (Exception e) {
+                log.warn("Error handling cluster event on {}", nodeId, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,203 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Offline export and import of the messages table as gzipped NDJSON: one object per line
+// with the fields of a history entry (id, roomId, username, content, timestamp,
+// isAnonymous). Both directions stream, through a file channel on one side and a database
+// cursor or COPY on the other, so memory stays flat at any archive size. Run it with
+// `java -jar <server jar> archive export|import <file> [roomId]`; see ArchiveTool.
+@Component
+public class MessageArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageArchive.class);
+
+    @Value("${app.chat.archive.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${app.chat.archive.buffer-size:65536}")
+    private int bufferSize;
+
+    // Imported rows older than the retention window would be dropped by the next
+    // partition maintenance run, so they are skipped
+    @Value("${app.chat.cleanup-days:30}")
+    private int retentionDays;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Autowired
+    private MessagePartitions messagePartitions;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    // rows: written or read from the archive; inserted: new rows (imports only);
+    // bytes: uncompressed NDJSON; archiveBytes: the gzipped file
+    public record Stats(long rows, long inserted, long bytes, long archiveBytes, long nanos) {
+
+        public double rowsPerSecond() {
+            return rows * 1e9 / Math.max(nanos, 1);
+        }
+
+        public double megabytesPerSecond() {
+            return bytes * 1e9 / Math.max(nanos, 1) / (1024 * 1024);
+        }
+
+        @Override
+        public String toString() {
+            return "%d rows (%d inserted), %.1f MB NDJSON, %.1f MB archive in %d ms: %.0f rows/s, %.1f MB/s".formatted(
+                rows, inserted, bytes / (1024.0 * 1024), archiveBytes / (1024.0 * 1024), nanos / 1_000_000,
+                rowsPerSecond(), megabytesPerSecond());
+        }
+    }
+
+    // Every message, or one room's when roomId is set
+    public Stats export(Path file, String roomId) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long rows;
+        CountingOutputStream counter;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            counter = new CountingOutputStream(new GZIPOutputStream(Channels.newOutputStream(channel), bufferSize));
+            try (JsonGenerator generator = jsonFactory.createGenerator(counter)) {
+                // Each object ends its own line instead of being space-separated
+                generator.setRootValueSeparator(null);
+                rows = databaseService.exportMessages(roomId, fetchSize, (id, room, username, content, timestamp, isAnonymous) -> {
+                    generator.writeStartObject();
+                    generator.writeStringField("id", id);
+                    generator.writeStringField("roomId", room);
+                    generator.writeStringField("username", username);
+                    generator.writeStringField("content", content);
+                    generator.writeStringField("timestamp", timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                    generator.writeBooleanField("isAnonymous", isAnonymous);
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                });
+            }
+        }
+        Stats stats = new Stats(rows, 0, counter.count, file.toFile().length(), System.nanoTime() - start);
+        log.info("Exported {} to {}", stats, file);
+        return stats;
+    }
+
+    public Stats importArchive(Path file) throws IOException, SQLException {
+        long start = System.nanoTime();
+        DatabaseService.ImportResult result;
+        long bytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream in = new GZIPInputStream(Channels.newInputStream(channel), bufferSize);
+             JsonParser parser = jsonFactory.createParser(in)) {
+            LocalDateTime notBefore = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+            result = databaseService.importMessages(out -> copyRows(parser, out), notBefore,
+                (oldest, newest) -> messagePartitions.ensurePartitions(oldest.toLocalDate(), newest.toLocalDate()));
+            bytes = parser.currentLocation().getByteOffset();
+        }
+        Stats stats = new Stats(result.copied(), result.inserted(), bytes, file.toFile().length(), System.nanoTime() - start);
+        log.info("Imported {} from {}", stats, file);
+        return stats;
+    }
+
+    // Archive objects to COPY text rows. Fields may come in any order; roomId and
+    // isAnonymous are optional, as in the history frames the format mirrors.
+    private void copyRows(JsonParser parser, OutputStream out) throws IOException {
+        StringBuilder row = new StringBuilder(256);
+        long line = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            line++;
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Archive row " + line + " is not an object");
+            }
+            String id = null;
+            String roomId = RoomRegistry.DEFAULT_ROOM;
+            String username = null;
+            String content = null;
+            String timestamp = null;
+            boolean isAnonymous = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "id" -> id = parser.getValueAsString();
+                    case "roomId" -> roomId = parser.getValueAsString();
+                    case "username" -> username = parser.getValueAsString();
+                    case "content" -> content = parser.getValueAsString();
+                    case "timestamp" -> timestamp = parser.getValueAsString();
+                    case "isAnonymous" -> isAnonymous = parser.getValueAsBoolean();
+                    default -> parser.skipChildren();
+                }
+            }
+            if (id == null || username == null || content == null || timestamp == null) {
+                throw new IOException("Archive row " + line + " needs id, username, content and timestamp");
+            }
+            row.setLength(0);
+            appendCopyField(row, id).append('\t');
+            appendCopyField(row, roomId).append('\t');
+            appendCopyField(row, username).append('\t');
+            appendCopyField(row, content).append('\t');
+            appendCopyField(row, timestamp).append('\t');
+            row.append(isAnonymous ? 't' : 'f').append('\n');
+            out.write(row.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // COPY text format: backslash and the delimiter and line characters are escaped
+    private static StringBuilder appendCopyField(StringBuilder row, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> row.append("\\\\");
+                case '\t' -> row.append("\\t");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                default -> row.append(c);
+            }
+        }
+        return row;
+    }
+
+    // Uncompressed bytes written, for the MB/s figure
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
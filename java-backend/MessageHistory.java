@@ -0,0 +1,75 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
+
+// Paged history for the history_request frame and GET /rooms/{roomId}/messages. Rows are
+// written to the JSON generator as the result set is read; the page is
+// {roomId, messages (newest first), nextCursor}, with nextCursor null on the oldest page.
+@Component
+public class MessageHistory {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Value("${app.chat.history.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.chat.history.max-page-size:200}")
+    private int maxPageSize;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    public int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+    // WebSocket response: the page wrapped as a message_history_page frame
+    public OutboundFrame pageFrame(String roomId, HistoryCursor before, int limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        writePage(out, "message_history_page", roomId, before, limit);
+        return OutboundFrame.text(out.toString(StandardCharsets.UTF_8));
+    }
+
+    public void writePage(OutputStream out, String roomId, HistoryCursor before, int limit) throws IOException {
+        writePage(out, null, roomId, before, limit);
+    }
+
+    private void writePage(OutputStream out, String type, String roomId, HistoryCursor before, int limit) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            if (type != null) {
+                generator.writeStringField("type", type);
+            }
+            generator.writeStringField("roomId", roomId);
+            generator.writeArrayFieldStart("messages");
+            HistoryCursor next = databaseService.streamHistory(roomId, before, limit, (id, username, content, timestamp, isAnonymous) -> {
+                generator.writeStartObject();
+                generator.writeStringField("id", id);
+                generator.writeStringField("username", username);
+                generator.writeStringField("content", content);
+                generator.writeStringField("timestamp", timestamp.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                generator.writeBooleanField("isAnonymous", isAnonymous);
+                generator.writeEndObject();
+            });
+            generator.writeEndArray();
+            generator.writeStringField("nextCursor", next != null ? next.encode() : null);
+            generator.writeEndObject();
+        } catch (SQLException e) {
+            throw new IOException("Error reading history of " + roomId, e);
+        }
+    }
+}
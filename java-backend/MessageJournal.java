@@ -0,0 +1,192 @@
+package com.chatapp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Write-behind journal: messages are queued by the WebSocket thread and persisted
+// by a background writer in JDBC batches, flushed on batch size or flush interval.
+// The messages are already delivered, so a batch that fails for any reason other than
+// rows the table rejects is kept and retried every retry-delay-ms until it is written.
+// Appends in flight are counted, so stop() drains the queue only once none can still
+// land in it.
+@Component
+public class MessageJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageJournal.class);
+
+    @Value("${app.chat.journal.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.chat.journal.batch-size:64}")
+    private int batchSize;
+
+    @Value("${app.chat.journal.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${app.chat.journal.offer-timeout-ms:100}")
+    private long offerTimeoutMs;
+
+    @Value("${app.chat.journal.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @Value("${app.chat.journal.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Autowired
+    private ChatThreads chatThreads;
+
+    private BlockingQueue<ChatMessage> queue;
+    private Thread writer;
+    private volatile boolean running;
+    // Messages queued so far, and of those the ones the writer has saved or the table
+    // rejected, for awaitIdle
+    private final AtomicLong enqueued = new AtomicLong();
+    private volatile long saved;
+    private volatile long failed;
+    private final AtomicInteger appending = new AtomicInteger();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = chatThreads.newThread("chat-journal-writer", this::runWriter);
+        writer.start();
+    }
+
+    public void append(ChatMessage message) {
+        // Counted before running is read: once stop() has seen no appends in flight, every
+        // later one sees running false and writes on the caller
+        appending.incrementAndGet();
+        try {
+            if (!running) {
+                saveNow(List.of(message));
+                return;
+            }
+            // Backpressure: wait briefly for room, then fall back to writing on the caller
+            if (queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                enqueued.incrementAndGet();
+            } else {
+                saveNow(List.of(message));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            saveNow(List.of(message));
+        } finally {
+            appending.decrementAndGet();
+        }
+    }
+
+    public int pendingCount() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    // Waits until the writer has saved everything queued so far, while it keeps running;
+    // false if that takes longer than timeoutMs
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long target = enqueued.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (saved + failed < target) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            Thread.sleep(Math.min(flushIntervalMs, 10));
+        }
+        return true;
+    }
+
+    private void runWriter() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                ChatMessage first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    ChatMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything taken off the queue but not yet written still has to be persisted
+        if (!batch.isEmpty()) {
+            saveNow(batch);
+        }
+    }
+
+    // Retries until the batch is written; stop() interrupts the wait if the database is
+    // still unreachable when the shutdown timeout runs out
+    private void writeBatch(List<ChatMessage> batch) throws InterruptedException {
+        while (true) {
+            try {
+                // Only this thread writes saved and failed
+                int written = databaseService.saveMessages(batch);
+                saved += written;
+                failed += batch.size() - written;
+                return;
+            } catch (SQLException e) {
+                log.warn("Error saving {} messages; retrying in {} ms: {}", batch.size(), retryDelayMs, e.getMessage());
+                Thread.sleep(retryDelayMs);
+            }
+        }
+    }
+
+    // One attempt, for callers that cannot wait for a retry
+    private void saveNow(List<ChatMessage> messages) {
+        try {
+            databaseService.saveMessages(messages);
+        } catch (SQLException e) {
+            log.error("Error saving {} messages", messages.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs + shutdownTimeoutMs);
+        while (appending.get() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(1);
+        }
+        writer.join(shutdownTimeoutMs);
+        if (writer.isAlive()) {
+            writer.interrupt();
+            writer.join();
+        }
+
+        List<ChatMessage> remaining = new ArrayList<>(batchSize);
+        while (queue.drainTo(remaining, batchSize) > 0) {
+            saveNow(remaining);
+            remaining.clear();
+        }
+        log.info("Message journal drained");
+    }
+}
@@ -0,0 +1,148 @@
+package com.chatapp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the partitions of messages ahead of the clock and retires expired ones. Each run
+// creates daily or weekly partitions up to precreate periods ahead, then drops every
+// partition whose upper bound is older than cleanup-days. A message therefore lives for
+// cleanup-days plus at most one partition period. Every node runs this; creation is
+// IF NOT EXISTS and a failed run is simply repeated on the next one.
+@Component
+public class MessagePartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(MessagePartitions.class);
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Value("${app.chat.cleanup-days:30}")
+    private int retentionDays;
+
+    // daily or weekly (weeks start on Monday)
+    @Value("${app.chat.partitions.interval:daily}")
+    private String interval;
+
+    @Value("${app.chat.partitions.precreate:7}")
+    private int precreate;
+
+    @Value("${app.chat.partitions.maintenance-interval-ms:3600000}")
+    private long maintenanceIntervalMs;
+
+    // Off for tools such as ArchiveTool, which create partitions but must not retire any
+    @Value("${app.chat.partitions.maintenance-enabled:true}")
+    private boolean maintenanceEnabled;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!maintenanceEnabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The first run happens before the server takes traffic, so today's partition exists
+        maintain();
+        scheduler.scheduleWithFixedDelay(this::maintain, maintenanceIntervalMs, maintenanceIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void maintain() {
+        long start = System.nanoTime();
+        try {
+            LocalDate today = LocalDate.now();
+            ensurePartitions(today, periodStart(today).plusDays((long) precreate * periodDays()));
+            retireExpired(today.minusDays(retentionDays).atStartOfDay());
+        } catch (SQLException | RuntimeException e) {
+            log.error("Message partition maintenance failed", e);
+        } finally {
+            chatMetrics.recordPartitionMaintenance(start);
+        }
+    }
+
+    // Creates partitions covering [from, to]. Ranges already covered, for example by a
+    // legacy partition ending mid-week, are skipped and the new partition starts where the
+    // existing one ends.
+    public void ensurePartitions(LocalDate from, LocalDate to) throws SQLException {
+        List<DatabaseService.MessagePartition> existing = databaseService.listMessagePartitions();
+        LocalDateTime cursor = periodStart(from).atStartOfDay();
+        LocalDateTime end = to.atStartOfDay();
+        while (!cursor.isAfter(end)) {
+            DatabaseService.MessagePartition covering = covering(existing, cursor);
+            if (covering != null) {
+                cursor = covering.to();
+                continue;
+            }
+            LocalDateTime next = periodStart(cursor.toLocalDate()).plusDays(periodDays()).atStartOfDay();
+            for (DatabaseService.MessagePartition partition : existing) {
+                if (partition.from() != null && partition.from().isAfter(cursor) && partition.from().isBefore(next)) {
+                    next = partition.from();
+                }
+            }
+            databaseService.createMessagePartition("messages_p" + cursor.format(NAME_FORMAT), cursor, next);
+            cursor = next;
+        }
+    }
+
+    private void retireExpired(LocalDateTime cutoff) throws SQLException {
+        for (DatabaseService.MessagePartition partition : databaseService.listMessagePartitions()) {
+            if (partition.to().isAfter(cutoff)) {
+                break;
+            }
+            long rows = databaseService.dropMessagePartition(partition.name());
+            if (rows >= 0) {
+                chatMetrics.countPartitionRetired(rows);
+            }
+        }
+    }
+
+    private static DatabaseService.MessagePartition covering(List<DatabaseService.MessagePartition> partitions, LocalDateTime time) {
+        for (DatabaseService.MessagePartition partition : partitions) {
+            if ((partition.from() == null || !partition.from().isAfter(time)) && partition.to().isAfter(time)) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    private LocalDate periodStart(LocalDate day) {
+        return weekly() ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : day;
+    }
+
+    private int periodDays() {
+        return weekly() ? 7 : 1;
+    }
+
+    private boolean weekly() {
+        return "weekly".equalsIgnoreCase(interval);
+    }
+}
@@ -0,0 +1,111 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Ranked full-text search over message content for GET /messages/search. A page is
+// {query, roomId, results (best match first), nextOffset}, with nextOffset null on the last
+// page. Paging stops at max-results, and a query that runs past timeout-ms is abandoned,
+// so no search can tie up the database for long.
+@Component
+public class MessageSearch {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // query_canceled, raised when statement_timeout expires
+    private static final String QUERY_CANCELED = "57014";
+
+    @Value("${app.chat.search.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.chat.search.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${app.chat.search.max-results:1000}")
+    private int maxResults;
+
+    @Value("${app.chat.search.max-query-length:200}")
+    private int maxQueryLength;
+
+    @Value("${app.chat.search.timeout-ms:2000}")
+    private long timeoutMs;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    public record Page(List<DatabaseService.SearchHit> hits, Integer nextOffset) {
+    }
+
+    public int pageSize(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(requested, maxPageSize);
+    }
+
+    public boolean acceptsQuery(String query) {
+        return query != null && !query.isBlank() && query.length() <= maxQueryLength;
+    }
+
+    // Null when the search ran out of time
+    public Page search(String query, String roomId, int offset, int limit) throws SQLException {
+        if (offset >= maxResults) {
+            return new Page(List.of(), null);
+        }
+        limit = Math.min(limit, maxResults - offset);
+        List<DatabaseService.SearchHit> hits;
+        try {
+            hits = databaseService.searchMessages(query, roomId, offset, limit, timeoutMs);
+        } catch (SQLException e) {
+            if (QUERY_CANCELED.equals(e.getSQLState())) {
+                chatMetrics.countSearchTimeout();
+                return null;
+            }
+            throw e;
+        }
+        if (hits.size() <= limit) {
+            return new Page(hits, null);
+        }
+        int next = offset + limit;
+        return new Page(hits.subList(0, limit), next < maxResults ? next : null);
+    }
+
+    public void writePage(OutputStream out, String query, String roomId, Page page) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("query", query);
+            generator.writeStringField("roomId", roomId);
+            generator.writeArrayFieldStart("results");
+            for (DatabaseService.SearchHit hit : page.hits()) {
+                generator.writeStartObject();
+                generator.writeStringField("id", hit.id());
+                generator.writeStringField("roomId", hit.roomId());
+                generator.writeStringField("username", hit.username());
+                generator.writeStringField("content", hit.content());
+                generator.writeStringField("timestamp", hit.timestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                generator.writeBooleanField("isAnonymous", hit.isAnonymous());
+                generator.writeNumberField("rank", hit.rank());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            if (page.nextOffset() != null) {
+                generator.writeNumberField("nextOffset", page.nextOffset());
+            } else {
+                generator.writeNullField("nextOffset");
+            }
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// Immutable outbound frame shared by every session it is delivered to. The JSON form is
+// encoded once up front; the CBOR form is transcoded once, on first use by a binary session.
+// Droppable frames (typing, presence deltas) may be shed by a congested session; frames
+// with a coalesce key replace any undelivered frame with the same key.
+public final class OutboundFrame {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+    private final byte[] json;
+    private final TextMessage text;
+    private final boolean droppable;
+    private final String coalesceKey;
+    private volatile byte[] cbor;
+
+    private OutboundFrame(byte[] json, boolean droppable, String coalesceKey) {
+        this.json = json;
+        // One TextMessage, and so one payload String, shared by every text session. The send
+        // still costs per session: the container encodes the String to UTF-8 for each native
+        // socket, and SockJS escapes it into its own a["..."] frame for each session.
+        this.text = new TextMessage(json);
+        this.droppable = droppable;
+        this.coalesceKey = coalesceKey;
+    }
+
+    public static OutboundFrame text(String payload) {
+        return new OutboundFrame(payload.getBytes(StandardCharsets.UTF_8), false, null);
+    }
+
+    // State the client can recover from later frames or a resync
+    public static OutboundFrame droppable(String payload) {
+        return new OutboundFrame(payload.getBytes(StandardCharsets.UTF_8), true, null);
+    }
+
+    // State where only the newest frame for the key matters
+    public static OutboundFrame latest(String payload, String coalesceKey) {
+        return new OutboundFrame(payload.getBytes(StandardCharsets.UTF_8), true, coalesceKey);
+    }
+
+    public boolean isDroppable() {
+        return droppable;
+    }
+
+    public String coalesceKey() {
+        return coalesceKey;
+    }
+
+    public WebSocketMessage<?> message(WireFormat format) {
+        if (format == WireFormat.CBOR) {
+            // ByteBuffers are consumed by the send, so each session gets its own view of the shared bytes
+            return new BinaryMessage(cbor());
+        }
+        return text;
+    }
+
+    public int size(WireFormat format) {
+        return format == WireFormat.CBOR ? cbor().length : json.length;
+    }
+
+    private byte[] cbor() {
+        byte[] encoded = cbor;
+        if (encoded == null) {
+            synchronized (this) {
+                if (cbor == null) {
+                    cbor = transcode(json);
+                }
+                encoded = cbor;
+            }
+        }
+        return encoded;
+    }
+
+    private static byte[] transcode(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+             JsonGenerator generator = CBOR_FACTORY.createGenerator(out)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
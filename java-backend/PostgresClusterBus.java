@@ -0,0 +1,229 @@
+package com.chatapp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Cluster bus over Postgres LISTEN/NOTIFY on the database the nodes already share.
+// Publishing is write-behind: one thread sends queued events in batches, each batch one
+// pg_notify round trip in a single transaction. Postgres delivers notifications in commit
+// order, so events from one node arrive in publish order everywhere. Listening needs a
+// dedicated session outside the pool, reconnected with backoff if it drops.
+//
+// The outbox is bounded: while the database is unreachable, events past outbox-capacity are
+// dropped and counted. They still use up a sequence number, so the other nodes see the gap
+// and ask for a presence sync.
+@Component
+@ConditionalOnProperty(name = "app.chat.cluster.bus", havingValue = "postgres")
+public class PostgresClusterBus implements ClusterBus {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresClusterBus.class);
+
+    // NOTIFY payloads must be shorter than 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7999;
+
+    // unnest keeps array order, so the batch is notified in publish order. Payloads are never
+    // identical (each has its own seq), so Postgres does not fold any of them together.
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, payload) FROM unnest(?::text[]) AS payload";
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @Value("${app.chat.cluster.node-name:chat}")
+    private String nodeName;
+
+    @Value("${app.chat.cluster.channel:chat_cluster}")
+    private String channel;
+
+    @Value("${app.chat.cluster.publish-batch-size:256}")
+    private int publishBatchSize;
+
+    @Value("${app.chat.cluster.reconnect-delay-ms:1000}")
+    private long reconnectDelayMs;
+
+    @Value("${app.chat.cluster.outbox-capacity:10000}")
+    private int outboxCapacity;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    private BlockingQueue<String> outbox;
+    private String nodeId;
+    private String ownPrefix;
+    private long seq;
+    private volatile Listener listener;
+    private volatile boolean running;
+    private Thread publisher;
+    private Thread subscriber;
+
+    @PostConstruct
+    public void start() {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("Invalid cluster channel name: " + channel);
+        }
+        nodeId = ClusterBus.newNodeId(nodeName);
+        // Envelopes serialize origin first, so our own echoes are recognised without decoding
+        ownPrefix = "{\"origin\":\"" + nodeId + "\"";
+        outbox = new ArrayBlockingQueue<>(outboxCapacity);
+        running = true;
+        publisher = new Thread(this::runPublisher, "chat-cluster-publisher");
+        publisher.start();
+        subscriber = new Thread(this::runSubscriber, "chat-cluster-listener");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        publisher.join(TimeUnit.SECONDS.toMillis(10));
+        subscriber.interrupt();
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public synchronized void publish(ClusterProtocol.Event event) {
+        String payload = ClusterProtocol.encode(new ClusterProtocol.Envelope(nodeId, seq + 1, event));
+        int bytes = payload.getBytes(StandardCharsets.UTF_8).length;
+        if (bytes > MAX_PAYLOAD_BYTES) {
+            log.warn("Cluster event of {} bytes exceeds the NOTIFY limit and was not published", bytes);
+            return;
+        }
+        seq++;
+        if (!outbox.offer(payload)) {
+            chatMetrics.countClusterDropped();
+            log.debug("Cluster outbox full; dropped event {}", seq);
+        }
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        this.listener = listener;
+    }
+
+    private void runPublisher() {
+        List<String> batch = new ArrayList<>(publishBatchSize);
+        while (running || !outbox.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    String first = outbox.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    outbox.drainTo(batch, publishBatchSize - 1);
+                }
+                sendBatch(batch);
+                batch.clear();
+            } catch (SQLException e) {
+                // The batch is kept and retried so events stay in order
+                log.warn("Error publishing {} cluster events: {}", batch.size(), e.getMessage());
+                if (!running || !pause()) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void sendBatch(List<String> batch) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(NOTIFY_SQL)) {
+            stmt.setString(1, channel);
+            stmt.setArray(2, conn.createArrayOf("text", batch.toArray()));
+            stmt.execute();
+        }
+    }
+
+    private void runSubscriber() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(url, username, password)) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + channel);
+                }
+                if (reconnecting) {
+                    log.info("Cluster listener reconnected on channel {}", channel);
+                    Listener current = listener;
+                    if (current != null) {
+                        current.onReconnected();
+                    }
+                }
+                reconnecting = true;
+                PGConnection pgConnection = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(500);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Cluster listener connection lost: {}", e.getMessage());
+                if (!pause()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        Listener current = listener;
+        if (current == null || payload.startsWith(ownPrefix)) {
+            return;
+        }
+        try {
+            current.onEvent(ClusterProtocol.decode(payload));
+        } catch (Exception e) {
+            log.warn("Error handling cluster event on {}", nodeId, e);
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(reconnectDelayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Versioned online-user state. A joining client gets one presence_snapshot; after that
+// all clients receive presence_delta frames (added/removed users) coalesced over a short
+// window. Deltas carry fromVersion/version so a client that sees a gap sends presence_sync.
+@Component
+public class PresenceService {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Value("${app.chat.presence.batch-window-ms:100}")
+    private long batchWindowMs;
+
+    @Autowired
+    private BroadcastEngine broadcastEngine;
+
+    @Autowired
+    private ChatThreads chatThreads;
+
+    // Online users keyed by user id, with a count of sessions per user across the cluster
+    private final Map<String, Presence> online = new LinkedHashMap<>();
+    // Sessions reported by each other node, per user id, so a departed node can be subtracted
+    private final Map<String, Map<String, Integer>> remoteSessions = new HashMap<>();
+    private final Map<String, ChatWebSocketHandler.User> pendingAdded = new LinkedHashMap<>();
+    private final Map<String, ChatWebSocketHandler.User> pendingRemoved = new LinkedHashMap<>();
+    private long version;
+
+    private final AtomicLong bytesSent = new AtomicLong();
+    private ScheduledFuture<?> flusher;
+
+    @PostConstruct
+    public void start() {
+        flusher = chatThreads.scheduleAtFixedRate("presence", this::flush, batchWindowMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.cancel(false);
+    }
+
+    public synchronized void join(ChatWebSocketHandler.User user) {
+        add(user, 1, true);
+    }
+
+    public synchronized void leave(ChatWebSocketHandler.User user) {
+        remove(user.id(), 1, true);
+    }
+
+    // A session joined or left on another node
+    public synchronized void applyRemote(String origin, ChatWebSocketHandler.User user, boolean joined) {
+        Map<String, Integer> sessions = remoteSessions.computeIfAbsent(origin, key -> new HashMap<>());
+        if (joined) {
+            sessions.merge(user.id(), 1, Integer::sum);
+            add(user, 1, false);
+        } else {
+            Integer count = sessions.get(user.id());
+            if (count == null) {
+                // Joined before this node knew about the origin; not counted, so nothing to undo
+                return;
+            }
+            if (count > 1) {
+                sessions.put(user.id(), count - 1);
+            } else {
+                sessions.remove(user.id());
+            }
+            remove(user.id(), 1, false);
+        }
+    }
+
+    // Another node's full local state, possibly in several chunks; reset starts over for that node
+    public synchronized void replayRemote(String origin, boolean reset, List<ClusterProtocol.PresenceEntry> entries) {
+        if (reset) {
+            dropRemote(origin);
+        }
+        Map<String, Integer> sessions = remoteSessions.computeIfAbsent(origin, key -> new HashMap<>());
+        for (ClusterProtocol.PresenceEntry entry : entries) {
+            sessions.merge(entry.userId(), entry.sessions(), Integer::sum);
+            add(new ChatWebSocketHandler.User(entry.userId(), entry.username(), entry.anonymous()), entry.sessions(), false);
+        }
+    }
+
+    public synchronized void dropRemote(String origin) {
+        Map<String, Integer> sessions = remoteSessions.remove(origin);
+        if (sessions != null) {
+            sessions.forEach((userId, count) -> remove(userId, count, false));
+        }
+    }
+
+    // Users with sessions on this node, for replaying to other nodes
+    public synchronized List<ClusterProtocol.PresenceEntry> localEntries() {
+        List<ClusterProtocol.PresenceEntry> entries = new ArrayList<>();
+        for (Presence presence : online.values()) {
+            if (presence.localSessions > 0) {
+                ChatWebSocketHandler.User user = presence.user;
+                entries.add(new ClusterProtocol.PresenceEntry(user.id(), user.username(), user.isAnonymous(), presence.localSessions));
+            }
+        }
+        return entries;
+    }
+
+    public synchronized int onlineCount() {
+        return online.size();
+    }
+
+    public long bytesSent() {
+        return bytesSent.get();
+    }
+
+    // The snapshot may already contain changes from the next delta; applying
+    // added/removed sets on the client is idempotent, so that is harmless.
+    public void sendSnapshot(String sessionId) {
+        OutboundFrame frame;
+        synchronized (this) {
+            frame = OutboundFrame.text(encode(generator -> {
+                generator.writeStringField("type", "presence_snapshot");
+                generator.writeNumberField("version", version);
+                generator.writeArrayFieldStart("users");
+                for (Presence presence : online.values()) {
+                    writeUser(generator, presence.user);
+                }
+                generator.writeEndArray();
+            }));
+        }
+        bytesSent.addAndGet(frame.size(WireFormat.JSON));
+        broadcastEngine.send(sessionId, frame);
+    }
+
+    private void flush() {
+        OutboundFrame frame;
+        synchronized (this) {
+            if (pendingAdded.isEmpty() && pendingRemoved.isEmpty()) {
+                return;
+            }
+            long fromVersion = version++;
+            Collection<ChatWebSocketHandler.User> added = pendingAdded.values();
+            Collection<ChatWebSocketHandler.User> removed = pendingRemoved.values();
+            // A session that misses a delta sees the version gap on the next one and resyncs
+            frame = OutboundFrame.droppable(encode(generator -> {
+                generator.writeStringField("type", "presence_delta");
+                generator.writeNumberField("fromVersion", fromVersion);
+                generator.writeNumberField("version", version);
+                generator.writeArrayFieldStart("added");
+                for (ChatWebSocketHandler.User user : added) {
+                    writeUser(generator, user);
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("removed");
+                for (ChatWebSocketHandler.User user : removed) {
+                    writeUser(generator, user);
+                }
+                generator.writeEndArray();
+            }));
+            pendingAdded.clear();
+            pendingRemoved.clear();
+        }
+        bytesSent.addAndGet((long) frame.size(WireFormat.JSON) * broadcastEngine.sessionCount());
+        broadcastEngine.broadcast(frame);
+    }
+
+    private void add(ChatWebSocketHandler.User user, int sessions, boolean local) {
+        Presence presence = online.get(user.id());
+        if (presence == null) {
+            presence = new Presence(user);
+            online.put(user.id(), presence);
+            if (pendingRemoved.remove(user.id()) == null) {
+                pendingAdded.put(user.id(), user);
+            }
+        }
+        presence.sessions += sessions;
+        if (local) {
+            presence.localSessions += sessions;
+        }
+    }
+
+    private void remove(String userId, int sessions, boolean local) {
+        Presence presence = online.get(userId);
+        if (presence == null) {
+            return;
+        }
+        presence.sessions -= sessions;
+        if (local) {
+            presence.localSessions -= sessions;
+        }
+        if (presence.sessions > 0) {
+            return;
+        }
+        online.remove(userId);
+        if (pendingAdded.remove(userId) == null) {
+            pendingRemoved.put(userId, presence.user);
+        }
+    }
+
+    private static void writeUser(JsonGenerator generator, ChatWebSocketHandler.User user) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", user.id());
+        generator.writeStringField("username", user.username());
+        generator.writeBooleanField("isAnonymous", user.isAnonymous());
+        generator.writeEndObject();
+    }
+
+    private interface FieldWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private static String encode(FieldWriter fields) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            fields.write(generator);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private static final class Presence {
+        private final ChatWebSocketHandler.User user;
+        private int sessions;
+        private int localSessions;
+
+        Presence(ChatWebSocketHandler.User user) {
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Streaming decoder and pre-built encoders for the chat protocol. Inbound frames are
+// read token by token straight into ChatProtocol records, without intermediate maps.
+@Component
+public class ProtocolCodec {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader reader = objectMapper.reader();
+    private final ObjectWriter messageWriter = objectMapper.writerFor(ChatProtocol.MessageFrame.class);
+    private final ObjectWriter roomWriter = objectMapper.writerFor(ChatProtocol.RoomFrame.class);
+    private final ObjectWriter errorWriter = objectMapper.writerFor(ChatProtocol.ErrorFrame.class);
+    private final ObjectWriter sessionWriter = objectMapper.writerFor(ChatProtocol.SessionFrame.class);
+    private final ObjectWriter restartWriter = objectMapper.writerFor(ChatProtocol.RestartFrame.class);
+    private final CBORFactory cborFactory = new CBORFactory();
+
+    public ChatProtocol.ClientMessage decode(String payload) throws IOException {
+        try (JsonParser parser = reader.createParser(payload)) {
+            return decode(parser);
+        }
+    }
+
+    public ChatProtocol.ClientMessage decodeBinary(ByteBuffer payload) throws IOException {
+        try (JsonParser parser = binaryParser(payload)) {
+            return decode(parser);
+        }
+    }
+
+    // The frame's "type" without decoding the rest, for checks that must run before the
+    // full decode. Clients send "type" first, so this usually reads a single field.
+    public String peekType(String payload) throws IOException {
+        try (JsonParser parser = reader.createParser(payload)) {
+            return peekType(parser);
+        }
+    }
+
+    public String peekTypeBinary(ByteBuffer payload) throws IOException {
+        try (JsonParser parser = binaryParser(payload)) {
+            return peekType(parser);
+        }
+    }
+
+    private static String peekType(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if (name.equals("type")) {
+                return parser.getValueAsString();
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    private JsonParser binaryParser(ByteBuffer payload) throws IOException {
+        if (payload.hasArray()) {
+            return cborFactory.createParser(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return cborFactory.createParser(bytes);
+    }
+
+    public ChatProtocol.ClientMessage decode(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+        Fields fields = new Fields();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (name) {
+                case "type" -> fields.type = parser.getValueAsString();
+                case "roomId" -> fields.roomId = parser.getValueAsString();
+                case "before" -> fields.before = parser.getValueAsString();
+                case "limit" -> fields.limit = value == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : null;
+                case "resumeToken" -> fields.resumeToken = parser.getValueAsString();
+                case "lastSeq" -> fields.lastSeq = value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null;
+                case "user" -> readObject(parser, value, fields, true);
+                case "message" -> readObject(parser, value, fields, false);
+                default -> parser.skipChildren();
+            }
+        }
+
+        String type = fields.type != null ? fields.type : "";
+        return switch (type) {
+            case "user_join" -> new ChatProtocol.UserJoin(fields.userId, fields.username, fields.isAnonymous, fields.roomId);
+            case "message" -> new ChatProtocol.SendMessage(fields.messageId, fields.content, fields.timestamp);
+            case "user_leave" -> new ChatProtocol.UserLeave();
+            case "typing_start" -> new ChatProtocol.TypingStart();
+            case "typing_stop" -> new ChatProtocol.TypingStop();
+            case "join_room" -> new ChatProtocol.JoinRoom(fields.roomId);
+            case "leave_room" -> new ChatProtocol.LeaveRoom();
+            case "presence_sync" -> new ChatProtocol.PresenceSync();
+            case "history_request" -> new ChatProtocol.HistoryRequest(fields.roomId, fields.before, fields.limit);
+            case "session_resume" -> new ChatProtocol.SessionResume(fields.resumeToken, fields.lastSeq);
+            default -> new ChatProtocol.Unknown(fields.type);
+        };
+    }
+
+    // Reads the nested "user" or "message" object into the flat field set
+    private static void readObject(JsonParser parser, JsonToken start, Fields fields, boolean user) throws IOException {
+        if (start != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if (user) {
+                switch (name) {
+                    case "id" -> fields.userId = parser.getValueAsString();
+                    case "username" -> fields.username = parser.getValueAsString();
+                    case "isAnonymous" -> fields.isAnonymous = parser.getValueAsBoolean();
+                    default -> parser.skipChildren();
+                }
+            } else {
+                switch (name) {
+                    case "id" -> fields.messageId = parser.getValueAsString();
+                    case "content" -> fields.content = parser.getValueAsString();
+                    case "timestamp" -> fields.timestamp = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    public String encodeMessage(ChatMessage message, long seq) throws JsonProcessingException {
+        return messageWriter.writeValueAsString(new ChatProtocol.MessageFrame(
+            "message",
+            message.roomId(),
+            seq,
+            new ChatProtocol.MessageBody(
+                message.id(),
+                message.username(),
+                message.content(),
+                ChatClock.format(message.timestamp()),
+                message.isAnonymous()
+            )
+        ));
+    }
+
+    public String encodeRoomJoined(String roomId) throws JsonProcessingException {
+        return roomWriter.writeValueAsString(new ChatProtocol.RoomFrame("room_joined", roomId));
+    }
+
+    public String encodeRoomLeft(String roomId) throws JsonProcessingException {
+        return roomWriter.writeValueAsString(new ChatProtocol.RoomFrame("room_left", roomId));
+    }
+
+    public String encodeError(String message) throws JsonProcessingException {
+        return errorWriter.writeValueAsString(new ChatProtocol.ErrorFrame("error", message));
+    }
+
+    public String encodeRestart(long reconnectAfterMs) throws JsonProcessingException {
+        return restartWriter.writeValueAsString(new ChatProtocol.RestartFrame("server_restart", reconnectAfterMs));
+    }
+
+    public String encodeSession(String type, String resumeToken, String roomId) throws JsonProcessingException {
+        return sessionWriter.writeValueAsString(new ChatProtocol.SessionFrame(type, resumeToken, roomId));
+    }
+
+    private static final class Fields {
+        private String type;
+        private String roomId;
+        private String userId;
+        private String username;
+        private boolean isAnonymous;
+        private String messageId;
+        private String before;
+        private Integer limit;
+        private String resumeToken;
+        private Long lastSeq;
+        private String content;
+        private String timestamp;
+    }
+}
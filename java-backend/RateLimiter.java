@@ -0,0 +1,117 @@
+package com.chatapp;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Per-session flood protection: one token bucket per session and frame class, implemented
+// as GCRA (generic cell rate algorithm). Each bucket is a single "theoretical arrival time"
+// advanced by CAS, so a check is a clock read and one compare-and-set, with no locks and no
+// refill thread. A bucket admits `burst` frames at once and `rate` per second sustained.
+@Component
+public class RateLimiter {
+
+    // Frame classes with their own limits; history requests are limited apart from the
+    // rest because each one is a database query
+    public enum Bucket {
+        MESSAGE, TYPING, HISTORY, OTHER;
+
+        public static Bucket of(String type) {
+            if (type == null) {
+                return OTHER;
+            }
+            return switch (type) {
+                case "message" -> MESSAGE;
+                case "typing_start", "typing_stop" -> TYPING;
+                case "history_request" -> HISTORY;
+                default -> OTHER;
+            };
+        }
+    }
+
+    private static final Bucket[] BUCKETS = Bucket.values();
+
+    @Value("${app.chat.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.chat.rate-limit.message.rate:5}")
+    private double messageRate;
+
+    @Value("${app.chat.rate-limit.message.burst:10}")
+    private int messageBurst;
+
+    @Value("${app.chat.rate-limit.typing.rate:10}")
+    private double typingRate;
+
+    @Value("${app.chat.rate-limit.typing.burst:20}")
+    private int typingBurst;
+
+    @Value("${app.chat.rate-limit.history.rate:2}")
+    private double historyRate;
+
+    @Value("${app.chat.rate-limit.history.burst:5}")
+    private int historyBurst;
+
+    @Value("${app.chat.rate-limit.other.rate:20}")
+    private double otherRate;
+
+    @Value("${app.chat.rate-limit.other.burst:40}")
+    private int otherBurst;
+
+    private final Map<String, AtomicLongArray> sessions = new ConcurrentHashMap<>();
+    // Per bucket: nanoseconds between frames at the sustained rate, and how far ahead of
+    // now the arrival time may run before frames are refused
+    private final long[] intervalNanos = new long[BUCKETS.length];
+    private final long[] toleranceNanos = new long[BUCKETS.length];
+
+    @PostConstruct
+    public void start() {
+        configure(Bucket.MESSAGE, messageRate, messageBurst);
+        configure(Bucket.TYPING, typingRate, typingBurst);
+        configure(Bucket.HISTORY, historyRate, historyBurst);
+        configure(Bucket.OTHER, otherRate, otherBurst);
+    }
+
+    private void configure(Bucket bucket, double rate, int burst) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        intervalNanos[bucket.ordinal()] = interval;
+        toleranceNanos[bucket.ordinal()] = interval * Math.max(burst - 1, 0);
+    }
+
+    public void register(String sessionId) {
+        sessions.put(sessionId, new AtomicLongArray(BUCKETS.length));
+    }
+
+    public void unregister(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public boolean tryAcquire(String sessionId, Bucket bucket) {
+        if (!enabled) {
+            return true;
+        }
+        // Sessions are registered on connect, so frames of an unknown session are refused
+        AtomicLongArray arrivals = sessions.get(sessionId);
+        return arrivals != null && tryAcquire(arrivals, bucket.ordinal(), System.nanoTime());
+    }
+
+    private boolean tryAcquire(AtomicLongArray arrivals, int bucket, long now) {
+        long interval = intervalNanos[bucket];
+        long tolerance = toleranceNanos[bucket];
+        while (true) {
+            long arrival = arrivals.get(bucket);
+            // A fresh or long-idle bucket starts from now: full burst available
+            long start = arrival == 0 || arrival - now < 0 ? now : arrival;
+            if (start - now > tolerance) {
+                return false;
+            }
+            if (arrivals.compareAndSet(bucket, arrival, start + interval)) {
+                return true;
+            }
+        }
+    }
+}
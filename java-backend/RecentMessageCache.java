@@ -0,0 +1,163 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Fixed-capacity ring buffer of the most recent chat messages per room. Joins are served
+// from memory, and each room's encoded message_history frame is reused until the next append.
+// Messages are numbered per room as they are appended; the ring keeps resume.log-capacity of
+// them so a resumed session can be sent just the messages after the last seq it saw.
+@Component
+public class RecentMessageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RecentMessageCache.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Value("${app.chat.message-history-limit:100}")
+    private int capacity;
+
+    @Value("${app.chat.resume.log-capacity:1000}")
+    private int logCapacity;
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    private final Map<String, RoomHistory> rooms = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void warm() {
+        RoomHistory history = history(RoomRegistry.DEFAULT_ROOM);
+        log.info("Message history cache warmed with {} messages", history.snapshot().size());
+    }
+
+    // Returns the message's seq in its room. Callers that broadcast the message append it
+    // under the room lock, so seq order is delivery order.
+    public long append(ChatMessage message) {
+        return history(message.roomId()).append(message);
+    }
+
+    public List<ChatMessage> snapshot(String roomId) {
+        return history(roomId).snapshot();
+    }
+
+    public OutboundFrame historyFrame(String roomId) {
+        return history(roomId).frame(roomId);
+    }
+
+    // A message_replay frame with the messages after lastSeq, or null when the log no
+    // longer reaches back that far
+    public OutboundFrame replayFrame(String roomId, long lastSeq) {
+        return history(roomId).replay(roomId, lastSeq);
+    }
+
+    // Rooms other than the default one are loaded from the database on first use
+    private RoomHistory history(String roomId) {
+        return rooms.computeIfAbsent(roomId, id -> {
+            RoomHistory history = new RoomHistory(Math.max(capacity, logCapacity), capacity);
+            for (ChatMessage message : databaseService.loadRecentMessages(id, capacity)) {
+                history.append(message);
+            }
+            return history;
+        });
+    }
+
+    private static final class RoomHistory {
+        private final ChatMessage[] ring;
+        private final int historySize;
+        private int head;
+        private int size;
+        // Seq of the newest message; the ring holds lastSeq - size + 1 .. lastSeq
+        private long lastSeq;
+        private volatile OutboundFrame frame;
+
+        RoomHistory(int capacity, int historySize) {
+            this.ring = new ChatMessage[capacity];
+            this.historySize = historySize;
+        }
+
+        synchronized long append(ChatMessage message) {
+            ring[(head + size) % ring.length] = message;
+            if (size < ring.length) {
+                size++;
+            } else {
+                head = (head + 1) % ring.length;
+            }
+            frame = null;
+            return ++lastSeq;
+        }
+
+        synchronized List<ChatMessage> snapshot() {
+            return copy(Math.min(size, historySize));
+        }
+
+        // The newest count messages, oldest first
+        private List<ChatMessage> copy(int count) {
+            ChatMessage[] copy = new ChatMessage[count];
+            for (int i = 0; i < count; i++) {
+                copy[i] = ring[(head + size - count + i) % ring.length];
+            }
+            return List.of(copy);
+        }
+
+        synchronized OutboundFrame replay(String roomId, long since) {
+            long missed = lastSeq - since;
+            if (missed < 0 || missed > size) {
+                return null;
+            }
+            return OutboundFrame.text(encode("message_replay", roomId, copy((int) missed), since + 1));
+        }
+
+        OutboundFrame frame(String roomId) {
+            OutboundFrame cached = frame;
+            if (cached != null) {
+                return cached;
+            }
+            synchronized (this) {
+                if (frame == null) {
+                    List<ChatMessage> messages = snapshot();
+                    frame = OutboundFrame.text(encode("message_history", roomId, messages, lastSeq - messages.size() + 1));
+                }
+                return frame;
+            }
+        }
+    }
+
+    private static String encode(String type, String roomId, List<ChatMessage> messages, long firstSeq) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", type);
+            generator.writeStringField("roomId", roomId);
+            generator.writeArrayFieldStart("messages");
+            long seq = firstSeq;
+            for (ChatMessage message : messages) {
+                generator.writeStartObject();
+                generator.writeNumberField("seq", seq++);
+                generator.writeStringField("id", message.id());
+                generator.writeStringField("username", message.username());
+                generator.writeStringField("content", message.content());
+                generator.writeStringField("timestamp", ChatClock.format(message.timestamp()));
+                generator.writeBooleanField("isAnonymous", message.isAnonymous());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.chatapp;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Room -> session index. Each session is in at most one room, so a room broadcast
+// only touches that room's members instead of every connection.
+@Component
+public class RoomRegistry {
+
+    public static final String DEFAULT_ROOM = "room_general";
+
+    @Autowired
+    private DatabaseService databaseService;
+
+    private final Set<String> knownRooms = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<String>> roomSessions = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionRooms = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void loadRooms() {
+        knownRooms.add(DEFAULT_ROOM);
+        knownRooms.addAll(databaseService.getRoomIds());
+    }
+
+    public boolean exists(String roomId) {
+        return roomId != null && knownRooms.contains(roomId);
+    }
+
+    // Moves the session into roomId and returns the room it was in before, if any
+    public String join(String sessionId, String roomId) {
+        String previous = sessionRooms.put(sessionId, roomId);
+        if (previous != null && !previous.equals(roomId)) {
+            removeMember(previous, sessionId);
+        }
+        // Added inside compute, so removeMember cannot drop the set as empty in between
+        roomSessions.compute(roomId, (id, members) -> {
+            Set<String> set = members != null ? members : ConcurrentHashMap.newKeySet();
+            set.add(sessionId);
+            return set;
+        });
+        return previous;
+    }
+
+    // Removes the session from its room and returns that room, if any
+    public String leave(String sessionId) {
+        String roomId = sessionRooms.remove(sessionId);
+        if (roomId != null) {
+            removeMember(roomId, sessionId);
+        }
+        return roomId;
+    }
+
+    public Set<String> roomIds() {
+        return Collections.unmodifiableSet(knownRooms);
+    }
+
+    public String roomOf(String sessionId) {
+        return sessionRooms.get(sessionId);
+    }
+
+    public Set<String> members(String roomId) {
+        Set<String> members = roomSessions.get(roomId);
+        return members != null ? Collections.unmodifiableSet(members) : Set.of();
+    }
+
+    private void removeMember(String roomId, String sessionId) {
+        roomSessions.computeIfPresent(roomId, (id, members) -> {
+            members.remove(sessionId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package com.chatapp;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.sql.SQLException;
+
+// Message search for moderators:
+//   GET /api/messages/search?q={query}&roomId={roomId}&offset=0&limit=20
+// q takes web-search syntax ("exact phrase", or, -word); roomId is optional. Answers 503
+// when the search exceeds its time budget; follow nextOffset until it is null.
+@RestController
+public class SearchController {
+
+    @Autowired
+    private MessageSearch messageSearch;
+
+    @Autowired
+    private RoomRegistry roomRegistry;
+
+    @GetMapping("/messages/search")
+    public ResponseEntity<StreamingResponseBody> search(@RequestParam String q,
+                                                        @RequestParam(required = false) String roomId,
+                                                        @RequestParam(defaultValue = "0") int offset,
+                                                        @RequestParam(required = false) Integer limit) throws SQLException {
+        if (!messageSearch.acceptsQuery(q) || offset < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (roomId != null && !roomRegistry.exists(roomId)) {
+            return ResponseEntity.notFound().build();
+        }
+        MessageSearch.Page page = messageSearch.search(q, roomId, offset, messageSearch.pageSize(limit));
+        if (page == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(out -> messageSearch.writePage(out, q, roomId, page));
+    }
+}
@@ -0,0 +1,111 @@
+package com.chatapp;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Resume tokens for joined sessions. When a connection drops, its user stays online and
+// the session is parked under its token for the grace period. A reconnect that presents the
+// token takes the session back without user_left/user_joined churn; otherwise the user
+// leaves when the grace period runs out. Tokens are single use and held in memory, so a
+// resume only works on the node that issued the token.
+@Component
+public class SessionResumption {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionResumption.class);
+
+    @Value("${app.chat.resume.grace-period-ms:30000}")
+    private long gracePeriodMs;
+
+    @Autowired
+    private ClusterRelay clusterRelay;
+
+    @Autowired
+    private ChatMetrics chatMetrics;
+
+    private final SecureRandom random = new SecureRandom();
+    // Token of each joined session, by session id
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    // Dropped sessions waiting to be resumed, by token
+    private final Map<String, Detached> detached = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public record Detached(ChatWebSocketHandler.User user, String roomId) {
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-resume");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    // A new token for the session, replacing any it had
+    public String issue(String sessionId) {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tokens.put(sessionId, token);
+        return token;
+    }
+
+    public void revoke(String sessionId) {
+        tokens.remove(sessionId);
+    }
+
+    // Parks a dropped session; false when it never got a token, in which case the caller
+    // lets the user leave right away
+    public boolean detach(String sessionId, ChatWebSocketHandler.User user, String roomId) {
+        String token = tokens.remove(sessionId);
+        if (token == null) {
+            return false;
+        }
+        Detached entry = new Detached(user, roomId);
+        detached.put(token, entry);
+        try {
+            scheduler.schedule(() -> expire(token, entry), gracePeriodMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: nothing will resume, so the user leaves now
+            detached.remove(token);
+            return false;
+        }
+        return true;
+    }
+
+    // The parked session for the token, or null when it expired or was never issued.
+    // Removal decides the race with expiry: exactly one of them gets the entry.
+    public Detached resume(String token) {
+        return token != null ? detached.remove(token) : null;
+    }
+
+    public int detachedCount() {
+        return detached.size();
+    }
+
+    private void expire(String token, Detached entry) {
+        if (detached.remove(token, entry)) {
+            log.debug("Resume grace period ended for {}", entry.user());
+            chatMetrics.countResume("expired");
+            clusterRelay.userLeft(entry.user());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.chatapp;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -10,21 +11,27 @@ import org.springframework.web.socket.server.standard.ServerEndpointExporter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
+import java.util.Arrays;
 
 @SpringBootApplication
 @EnableWebSocket
 public class SpringBootChatApplication implements WebSocketConfigurer {
 
-    public static void main(String[] args) {
-        System.out.println("🚀 Starting Anonymous Chat Server...");
+    @Autowired
+    private ChatWebSocketHandler chatWebSocketHandler;
+
+    public static void main(String[] args) throws Exception {
+        // Offline archive export/import; see ArchiveTool
+        if (args.length > 0 && args[0].equals("archive")) {
+            System.exit(ArchiveTool.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        // Boot logs the bound port, and ChatLifecycle logs once the node accepts connections
         SpringApplication.run(SpringBootChatApplication.class, args);
-        System.out.println("✅ Chat Server is running on port 8080");
-        System.out.println("🌐 WebSocket endpoint: ws://localhost:8080/chat");
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(new ChatWebSocketHandler(), "/chat")
+        registry.addHandler(chatWebSocketHandler, "/chat")
                 .setAllowedOrigins("*")
                 .withSockJS();
     }
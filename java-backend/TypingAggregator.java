@@ -0,0 +1,200 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tracks who is typing in each room and emits at most one combined typing_users frame
+// per room per interval, only when the set of typers actually changed. Start/stop
+// flapping within an interval is invisible, and typers expire if no stop ever arrives.
+//
+// The same tick publishes this node's typers for a room to the cluster when they changed,
+// and again every half expiry while someone is still typing. Other nodes keep each origin's
+// latest set until it is replaced or expires, so a lost event cannot leave a typer shown.
+@Component
+public class TypingAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(TypingAggregator.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Keeps a published set well under the 8000-byte NOTIFY payload limit
+    private static final int MAX_PUBLISHED_TYPERS = 50;
+
+    @Value("${app.chat.typing.emit-interval-ms:250}")
+    private long emitIntervalMs;
+
+    @Value("${app.chat.typing.expiry-ms:5000}")
+    private long expiryMs;
+
+    @Autowired
+    private BroadcastEngine broadcastEngine;
+
+    @Autowired
+    private RoomRegistry roomRegistry;
+
+    @Autowired
+    private ChatThreads chatThreads;
+
+    @Autowired
+    private ClusterBus clusterBus;
+
+    private final Map<String, RoomTyping> rooms = new ConcurrentHashMap<>();
+    private final AtomicLong framesEmitted = new AtomicLong();
+    private ScheduledFuture<?> emitter;
+
+    @PostConstruct
+    public void start() {
+        emitter = chatThreads.scheduleAtFixedRate("typing", this::emit, emitIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        emitter.cancel(false);
+    }
+
+    public void typingStarted(String roomId, String username) {
+        long expiresAt = System.currentTimeMillis() + expiryMs;
+        rooms.compute(roomId, (id, typing) -> {
+            RoomTyping state = typing != null ? typing : new RoomTyping();
+            state.typers.put(username, expiresAt);
+            return state;
+        });
+    }
+
+    public void typingStopped(String roomId, String username) {
+        RoomTyping typing = rooms.get(roomId);
+        if (typing != null) {
+            typing.typers.remove(username);
+        }
+    }
+
+    // The typers another node last published for the room, replacing its previous set
+    public void applyRemote(String origin, String roomId, List<String> usernames) {
+        long expiresAt = System.currentTimeMillis() + expiryMs;
+        rooms.compute(roomId, (id, typing) -> {
+            RoomTyping state = typing != null ? typing : new RoomTyping();
+            if (usernames.isEmpty()) {
+                state.remote.remove(origin);
+            } else {
+                state.remote.put(origin, new RemoteTypers(usernames, expiresAt));
+            }
+            return state;
+        });
+    }
+
+    // A message from a remote typer clears it here without waiting for its node's next set
+    public void remoteStopped(String origin, String roomId, String username) {
+        RoomTyping typing = rooms.get(roomId);
+        if (typing != null) {
+            typing.remote.computeIfPresent(origin, (key, typers) -> typers.without(username));
+        }
+    }
+
+    public void dropRemote(String origin) {
+        for (RoomTyping typing : rooms.values()) {
+            typing.remote.remove(origin);
+        }
+    }
+
+    public long framesEmitted() {
+        return framesEmitted.get();
+    }
+
+    private void emit() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, RoomTyping> entry : rooms.entrySet()) {
+            String roomId = entry.getKey();
+            RoomTyping typing = entry.getValue();
+
+            TreeSet<String> local = new TreeSet<>();
+            Iterator<Map.Entry<String, Long>> it = typing.typers.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> typer = it.next();
+                if (typer.getValue() < now) {
+                    it.remove();
+                } else {
+                    local.add(typer.getKey());
+                }
+            }
+
+            if (!local.equals(typing.lastPublished)
+                    || (!local.isEmpty() && now - typing.lastPublishedMillis >= expiryMs / 2)) {
+                typing.lastPublished = local;
+                typing.lastPublishedMillis = now;
+                List<String> published = List.copyOf(local);
+                clusterBus.publish(new ClusterProtocol.TypingState(roomId,
+                    published.size() > MAX_PUBLISHED_TYPERS ? published.subList(0, MAX_PUBLISHED_TYPERS) : published));
+            }
+
+            TreeSet<String> current = new TreeSet<>(local);
+            typing.remote.values().removeIf(typers -> typers.expiresAt() < now);
+            for (RemoteTypers typers : typing.remote.values()) {
+                current.addAll(typers.usernames());
+            }
+
+            if (!current.equals(typing.lastEmitted)) {
+                typing.lastEmitted = current;
+                try {
+                    broadcastEngine.broadcastTo(roomRegistry.members(roomId), OutboundFrame.latest(encode(roomId, current), "typing:" + roomId), null);
+                    framesEmitted.incrementAndGet();
+                } catch (IOException e) {
+                    log.warn("Error encoding typing frame", e);
+                }
+            }
+
+            // Drop idle rooms atomically so a concurrent typingStarted is never lost
+            rooms.computeIfPresent(roomId, (id, state) -> state.typers.isEmpty() && state.remote.isEmpty()
+                && state.lastEmitted.isEmpty() && state.lastPublished.isEmpty() ? null : state);
+        }
+    }
+
+    private static String encode(String roomId, Iterable<String> usernames) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "typing_users");
+            generator.writeStringField("roomId", roomId);
+            generator.writeArrayFieldStart("users");
+            for (String username : usernames) {
+                generator.writeString(username);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    private record RemoteTypers(List<String> usernames, long expiresAt) {
+        RemoteTypers without(String username) {
+            List<String> rest = usernames.stream().filter(name -> !name.equals(username)).toList();
+            return rest.isEmpty() ? null : new RemoteTypers(rest, expiresAt);
+        }
+    }
+
+    private static final class RoomTyping {
+        // Typers on this node's sessions, with their expiry times
+        private final Map<String, Long> typers = new ConcurrentHashMap<>();
+        private final Map<String, RemoteTypers> remote = new ConcurrentHashMap<>();
+        // Only touched by the scheduler thread
+        private Set<String> lastEmitted = Set.of();
+        private Set<String> lastPublished = Set.of();
+        private long lastPublishedMillis;
+    }
+}
@@ -0,0 +1,21 @@
+package com.chatapp;
+
+// Frame encoding of a connection, negotiated through the WebSocket subprotocol
+public enum WireFormat {
+    JSON("chat.json"),
+    CBOR("chat.cbor");
+
+    private final String subprotocol;
+
+    WireFormat(String subprotocol) {
+        this.subprotocol = subprotocol;
+    }
+
+    public String subprotocol() {
+        return subprotocol;
+    }
+
+    public static WireFormat fromSubprotocol(String subprotocol) {
+        return CBOR.subprotocol.equals(subprotocol) ? CBOR : JSON;
+    }
+}
@@ -0,0 +1,87 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.DatabaseService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Writing last_active for N active users: one UPDATE per user, as updateUserActivity used
+// to do on every call, against the single UPDATE ... FROM (VALUES ...) the activity
+// tracker flushes.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ActivityFlushBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int users;
+
+    private EmbeddedPostgres postgres;
+    private HikariDataSource dataSource;
+    private DatabaseService databaseService;
+    private long tick;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = BenchmarkSupport.startPostgres();
+        dataSource = BenchmarkSupport.pooledDataSource(postgres, 4);
+        databaseService = BenchmarkSupport.databaseService(dataSource);
+        BenchmarkSupport.initializeSchema(databaseService);
+        databaseService.saveUsers(activity());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dataSource.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public void perUserUpdate() throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE users SET last_active = ? WHERE id = ?")) {
+            for (DatabaseService.UserActivity user : activity()) {
+                stmt.setTimestamp(1, Timestamp.valueOf(user.lastActive()));
+                stmt.setString(2, user.id());
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    @Benchmark
+    public void batchedFlush() throws Exception {
+        databaseService.updateUserActivity(activity());
+    }
+
+    // Every call moves last_active forward, so each row really is updated
+    private List<DatabaseService.UserActivity> activity() {
+        LocalDateTime lastActive = LocalDateTime.of(2024, 1, 1, 0, 0).plusNanos(++tick * 1000);
+        List<DatabaseService.UserActivity> activity = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            activity.add(new DatabaseService.UserActivity("user_" + i, "bench_user_" + i, true, lastActive));
+        }
+        return activity;
+    }
+}
@@ -0,0 +1,157 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.DatabaseService;
+import com.chatapp.MessageArchive;
+import com.chatapp.MessagePartitions;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Round trip of MessageArchive over 2M synthetic messages spread across the last 20 days,
+// one in a hundred with tabs, newlines, backslashes and non-ASCII text. export reads the
+// table through the cursor into a gzipped NDJSON file; importArchive loads that file into
+// an emptied table through COPY and checks the result matches the seeded rows exactly.
+// Each invocation moves the whole table, so the aux counters give rows/s and uncompressed
+// MB/s. Seeding takes a few minutes; run -p rows=200000 for a quick check.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArchiveBenchmark {
+
+    private static final String CHECKSUM = """
+        SELECT count(*), md5(string_agg(id || '|' || room_id || '|' || username || '|' || content || '|'
+                                        || timestamp || '|' || is_anonymous, ',' ORDER BY id))
+        FROM messages
+        """;
+
+    @Param({"2000000"})
+    public int rows;
+
+    private EmbeddedPostgres postgres;
+    private HikariDataSource dataSource;
+    private MessageArchive archive;
+    private Path exported;
+    private Path seeded;
+    private String seededChecksum;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long rows;
+        public double megabytes;
+
+        void add(MessageArchive.Stats stats) {
+            rows += stats.rows();
+            megabytes += stats.bytes() / (1024.0 * 1024);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = BenchmarkSupport.startPostgres();
+        dataSource = BenchmarkSupport.pooledDataSource(postgres, 4);
+        DatabaseService databaseService = BenchmarkSupport.databaseService(dataSource);
+        BenchmarkSupport.initializeSchema(databaseService, LocalDate.now().minusDays(21), LocalDate.now().plusDays(1));
+        MessagePartitions partitions = BenchmarkSupport.wire(new MessagePartitions(), "databaseService", databaseService);
+        BenchmarkSupport.wire(partitions, "interval", "daily");
+        archive = BenchmarkSupport.wire(new MessageArchive(), "databaseService", databaseService);
+        BenchmarkSupport.wire(archive, "messagePartitions", partitions);
+        BenchmarkSupport.wire(archive, "fetchSize", 5000);
+        BenchmarkSupport.wire(archive, "bufferSize", 65536);
+        BenchmarkSupport.wire(archive, "retentionDays", 30);
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                INSERT INTO messages (id, room_id, username, content, timestamp, is_anonymous)
+                SELECT 'msg_' || n, 'room_' || mod(n, 5), 'user_' || mod(n, 1000),
+                       CASE WHEN mod(n, 100) = 0
+                            THEN E'tab\\there\\nnew line, back\\\\slash \\r "quoted" \\u00e9 \\u6f22\\u5b57 \\U0001F600'
+                            ELSE 'message number ' || n || ' with some ordinary chat text in it' END,
+                       now() - n * (INTERVAL '20 days' / %d), mod(n, 2) = 0
+                FROM generate_series(1, %d) AS n
+                """.formatted(rows, rows));
+            stmt.execute("VACUUM ANALYZE messages");
+            seededChecksum = checksum(stmt);
+        }
+        exported = Files.createTempFile("messages-export", ".ndjson.gz");
+        seeded = Files.createTempFile("messages-seeded", ".ndjson.gz");
+        archive.export(seeded, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(exported);
+        Files.deleteIfExists(seeded);
+        dataSource.close();
+        postgres.close();
+    }
+
+    // Empties the table before each import. Benchmarks run in name order, so export sees
+    // the seeded table and each import restores it.
+    @State(Scope.Benchmark)
+    public static class EmptyTable {
+
+        @Setup(Level.Invocation)
+        public void truncate(ArchiveBenchmark benchmark) throws Exception {
+            try (Connection conn = benchmark.dataSource.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("TRUNCATE messages");
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void verify(ArchiveBenchmark benchmark) throws Exception {
+            try (Connection conn = benchmark.dataSource.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                String restored = checksum(stmt);
+                if (!restored.equals(benchmark.seededChecksum)) {
+                    throw new IllegalStateException("Round trip changed the table: " + restored + " != " + benchmark.seededChecksum);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public MessageArchive.Stats export(Throughput throughput) throws Exception {
+        MessageArchive.Stats stats = archive.export(exported, null);
+        throughput.add(stats);
+        return stats;
+    }
+
+    @Benchmark
+    public MessageArchive.Stats importArchive(EmptyTable emptyTable, Throughput throughput) throws Exception {
+        MessageArchive.Stats stats = archive.importArchive(seeded);
+        throughput.add(stats);
+        return stats;
+    }
+
+    private static String checksum(Statement stmt) throws Exception {
+        try (ResultSet rs = stmt.executeQuery(CHECKSUM)) {
+            rs.next();
+            return rs.getLong(1) + " " + rs.getString(2);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.ChatMessage;
+import com.chatapp.ChatMetrics;
+import com.chatapp.DatabaseService;
+import com.chatapp.MessagePartitions;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.util.ReflectionTestUtils;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Wiring helpers: the benchmarks build server components without a Spring context
+final class BenchmarkSupport {
+
+    private static final AtomicLong MESSAGE_IDS = new AtomicLong();
+
+    private BenchmarkSupport() {
+    }
+
+    static <T> T wire(T target, String field, Object value) {
+        ReflectionTestUtils.setField(target, field, value);
+        return target;
+    }
+
+    static DatabaseService databaseService(DataSource dataSource) {
+        DatabaseService databaseService = wire(new DatabaseService(), "dataSource", dataSource);
+        return wire(databaseService, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry()));
+    }
+
+    // Schema plus message partitions covering [from, to]
+    static void initializeSchema(DatabaseService databaseService, LocalDate from, LocalDate to) throws SQLException {
+        databaseService.initializeDatabase();
+        MessagePartitions partitions = wire(new MessagePartitions(), "databaseService", databaseService);
+        wire(partitions, "interval", "daily");
+        partitions.ensurePartitions(from, to);
+    }
+
+    static void initializeSchema(DatabaseService databaseService) throws SQLException {
+        initializeSchema(databaseService, LocalDate.now().minusDays(1), LocalDate.now().plusDays(1));
+    }
+
+    static EmbeddedPostgres startPostgres() throws IOException {
+        return EmbeddedPostgres.builder().start();
+    }
+
+    static HikariDataSource pooledDataSource(EmbeddedPostgres postgres, int maxPoolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(postgres.getJdbcUrl("postgres", "postgres"));
+        config.setUsername("postgres");
+        config.setPassword("postgres");
+        config.setMaximumPoolSize(maxPoolSize);
+        config.addDataSourceProperty("prepareThreshold", "1");
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        return new HikariDataSource(config);
+    }
+
+    static ChatMessage message(String roomId, String content) {
+        return new ChatMessage("bench_" + MESSAGE_IDS.incrementAndGet(), roomId, "bench_user", content, LocalDateTime.now(), true);
+    }
+
+    static List<ChatMessage> messages(String roomId, int count, String content) {
+        List<ChatMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(message(roomId, content));
+        }
+        return messages;
+    }
+
+    static String userJoinFrame() {
+        return "{\"type\":\"user_join\",\"user\":{\"id\":\"user_42\",\"username\":\"quiet_fox\",\"isAnonymous\":true},\"roomId\":\"room_general\"}";
+    }
+
+    static String chatMessageFrame() {
+        return "{\"type\":\"message\",\"message\":{\"id\":\"msg_1712345678901\",\"content\":\"Has anyone tried the new build yet? It seems a lot snappier.\",\"timestamp\":\"2024-04-05T18:21:18.901Z\",\"username\":\"quiet_fox\",\"isAnonymous\":true}}";
+    }
+
+    static String typingFrame() {
+        return "{\"type\":\"typing_start\",\"roomId\":\"room_general\"}";
+    }
+}
@@ -0,0 +1,112 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.BroadcastEngine;
+import com.chatapp.ChatMetrics;
+import com.chatapp.ChatThreads;
+import com.chatapp.OutboundFrame;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.TextMessage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Broadcast fan-out over N in-memory sessions. serialSend is the original loop (new
+// TextMessage and a blocking send per session on the caller). engineEnqueue measures the
+// caller-side cost of BroadcastEngine; engineDelivered also waits until every session got
+// the frame. Each engine invocation drains before the next so queues stay bounded.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BroadcastBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int sessions;
+
+    // Simulated socket write time per frame
+    @Param({"0", "2000"})
+    public long sendDelayNanos;
+
+    private final String payload = "{\"type\":\"message\",\"roomId\":\"room_general\",\"message\":{\"id\":\"msg_1\",\"username\":\"quiet_fox\","
+        + "\"content\":\"Has anyone tried the new build yet?\",\"timestamp\":\"2024-04-05T18:21:18.901\",\"isAnonymous\":true}}";
+
+    private final AtomicLong delivered = new AtomicLong();
+    private List<StubSession> stubs;
+    private BroadcastEngine engine;
+    private long expectedDeliveries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stubs = new ArrayList<>(sessions);
+        engine = new BroadcastEngine();
+        BenchmarkSupport.wire(engine, "sendTimeLimitMs", 5000L);
+        BenchmarkSupport.wire(engine, "bufferSizeLimit", Integer.MAX_VALUE);
+        BenchmarkSupport.wire(engine, "deliveryThreads", 0);
+        BenchmarkSupport.wire(engine, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry()));
+        BenchmarkSupport.wire(engine, "chatThreads", new ChatThreads(false));
+        engine.start();
+        for (int i = 0; i < sessions; i++) {
+            StubSession stub = new StubSession("s" + i, null, sendDelayNanos, delivered);
+            stubs.add(stub);
+            engine.register(stub);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        engine.stop();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetDeliveries() {
+        expectedDeliveries = delivered.get() + sessions;
+    }
+
+    @TearDown(Level.Invocation)
+    public void awaitDeliveries() {
+        awaitDelivered();
+    }
+
+    @Benchmark
+    public void serialSend() throws IOException {
+        for (StubSession session : stubs) {
+            if (session.isOpen()) {
+                session.sendMessage(new TextMessage(payload));
+            }
+        }
+    }
+
+    @Benchmark
+    public void engineEnqueue() {
+        engine.broadcast(OutboundFrame.text(payload));
+    }
+
+    @Benchmark
+    public void engineDelivered() {
+        engine.broadcast(OutboundFrame.text(payload));
+        awaitDelivered();
+    }
+
+    private void awaitDelivered() {
+        while (delivered.get() < expectedDeliveries) {
+            Thread.onSpinWait();
+        }
+    }
+}
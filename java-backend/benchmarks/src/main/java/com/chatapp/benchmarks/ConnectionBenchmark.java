@@ -0,0 +1,69 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.DatabaseService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Messages/sec persisted with one saveMessage call per chat message, against an embedded
+// PostgreSQL: a new DriverManager connection per call versus the pooled DataSource.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ConnectionBenchmark {
+
+    @Param({"driverManager", "pooled"})
+    public String connections;
+
+    private final AtomicLong ids = new AtomicLong();
+    private EmbeddedPostgres postgres;
+    private DataSource dataSource;
+    private DatabaseService databaseService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = BenchmarkSupport.startPostgres();
+        if ("pooled".equals(connections)) {
+            dataSource = BenchmarkSupport.pooledDataSource(postgres, 20);
+        } else {
+            dataSource = new DriverManagerDataSource(postgres.getJdbcUrl("postgres", "postgres"), "postgres", "postgres");
+        }
+        databaseService = BenchmarkSupport.databaseService(dataSource);
+        BenchmarkSupport.initializeSchema(databaseService);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (dataSource instanceof HikariDataSource hikari) {
+            hikari.close();
+        }
+        postgres.close();
+    }
+
+    @Benchmark
+    public void saveMessage() {
+        databaseService.saveMessage("conn_" + ids.incrementAndGet(), "room_general", "bench_user",
+            "Has anyone tried the new build yet?", true);
+    }
+}
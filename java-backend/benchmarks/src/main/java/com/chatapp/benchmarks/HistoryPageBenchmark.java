@@ -0,0 +1,115 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.DatabaseService;
+import com.chatapp.HistoryCursor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// One 50-row history page at increasing depth into a large room: keyset streamHistory
+// against the LIMIT/OFFSET query it replaces. Keyset latency should not grow with depth.
+// Seeding 10M rows takes a few minutes; run -p rows=1000000 for a quick check.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryPageBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000000"})
+    public int rows;
+
+    // Fraction of the room's history already paged through
+    @Param({"0.0", "0.5", "0.99"})
+    public double depth;
+
+    private EmbeddedPostgres postgres;
+    private HikariDataSource dataSource;
+    private DatabaseService databaseService;
+    private HistoryCursor cursor;
+    private int offset;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = BenchmarkSupport.startPostgres();
+        dataSource = BenchmarkSupport.pooledDataSource(postgres, 4);
+        databaseService = BenchmarkSupport.databaseService(dataSource);
+        // One second per row from 2024-01-01, spread over daily partitions
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        BenchmarkSupport.initializeSchema(databaseService, firstDay, firstDay.plusDays(rows / 86_400 + 1));
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                INSERT INTO messages (id, room_id, username, content, timestamp, is_anonymous)
+                SELECT 'msg_' || n, 'room_general', 'user_' || mod(n, 1000), 'History row ' || n,
+                       TIMESTAMP '2024-01-01' + n * INTERVAL '1 second', true
+                FROM generate_series(1, %d) AS n
+                """.formatted(rows));
+            stmt.execute("ANALYZE messages");
+        }
+
+        offset = (int) (rows * depth);
+        if (offset > 0) {
+            // The cursor a client holds after paging through offset rows
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT timestamp, id FROM messages WHERE room_id = 'room_general' ORDER BY timestamp DESC, id DESC OFFSET ? LIMIT 1")) {
+                stmt.setInt(1, offset - 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    cursor = new HistoryCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getString(2));
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dataSource.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public HistoryCursor keysetPage(Blackhole blackhole) throws Exception {
+        return databaseService.streamHistory("room_general", cursor, PAGE_SIZE,
+            (id, username, content, timestamp, isAnonymous) -> blackhole.consume(id));
+    }
+
+    @Benchmark
+    public void offsetPage(Blackhole blackhole) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id, username, content, timestamp, is_anonymous FROM messages WHERE room_id = ? ORDER BY timestamp DESC, id DESC LIMIT ? OFFSET ?")) {
+            stmt.setString(1, "room_general");
+            stmt.setInt(2, PAGE_SIZE);
+            stmt.setInt(3, offset);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    blackhole.consume(rs.getString(1));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.ChatMessage;
+import com.chatapp.DatabaseService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Recent-history query and row mapping: getRecentMessages (HashMap per row) against
+// loadRecentMessages (ChatMessage records), both over the pooled DataSource.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryQueryBenchmark {
+
+    @Param({"50", "100"})
+    public int limit;
+
+    private EmbeddedPostgres postgres;
+    private HikariDataSource dataSource;
+    private DatabaseService databaseService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = BenchmarkSupport.startPostgres();
+        dataSource = BenchmarkSupport.pooledDataSource(postgres, 4);
+        databaseService = BenchmarkSupport.databaseService(dataSource);
+        BenchmarkSupport.initializeSchema(databaseService);
+        for (int i = 0; i < 20; i++) {
+            databaseService.saveMessages(BenchmarkSupport.messages("room_general", 500, "History row " + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dataSource.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> getRecentMessages() {
+        return databaseService.getRecentMessages("room_general", limit);
+    }
+
+    @Benchmark
+    public List<ChatMessage> loadRecentMessages() {
+        return databaseService.loadRecentMessages("room_general", limit);
+    }
+}
@@ -0,0 +1,68 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.ChatMetrics;
+import com.chatapp.ChatProtocol;
+import com.chatapp.ProtocolCodec;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.concurrent.TimeUnit;
+
+// Cost of the per-message instrumentation: decoding a chat frame bare, and with the parse
+// timer, type counter and a disabled trace log line as ChatWebSocketHandler records them.
+// The registry uses Prometheus with percentile histograms on, as application.properties does.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstrumentationBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(InstrumentationBenchmark.class);
+
+    private final ProtocolCodec protocolCodec = new ProtocolCodec();
+    private final String payload = BenchmarkSupport.chatMessageFrame();
+    private ChatMetrics chatMetrics;
+
+    @Setup
+    public void setUp() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        });
+        chatMetrics = new ChatMetrics(registry);
+    }
+
+    @Benchmark
+    public ChatProtocol.ClientMessage decodeBare() throws Exception {
+        return protocolCodec.decode(payload);
+    }
+
+    @Benchmark
+    public ChatProtocol.ClientMessage decodeInstrumented() throws Exception {
+        long start = System.nanoTime();
+        ChatProtocol.ClientMessage decoded = protocolCodec.decode(payload);
+        chatMetrics.recordParse(start);
+        chatMetrics.countMessage(decoded);
+        log.trace("Message {} from {}", decoded, payload);
+        return decoded;
+    }
+}
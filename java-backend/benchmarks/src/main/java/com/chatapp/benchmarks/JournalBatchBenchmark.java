@@ -0,0 +1,67 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.ChatMessage;
+import com.chatapp.DatabaseService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Insert throughput of the write-behind journal's batched INSERT at batch sizes 1, 64
+// and 512. The "messages" aux counter reports rows/sec independent of batch size.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBatchBenchmark {
+
+    @Param({"1", "64", "512"})
+    public int batchSize;
+
+    private EmbeddedPostgres postgres;
+    private HikariDataSource dataSource;
+    private DatabaseService databaseService;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long messages;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = BenchmarkSupport.startPostgres();
+        dataSource = BenchmarkSupport.pooledDataSource(postgres, 4);
+        databaseService = BenchmarkSupport.databaseService(dataSource);
+        BenchmarkSupport.initializeSchema(databaseService);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dataSource.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public void saveBatch(Rows rows) throws Exception {
+        List<ChatMessage> batch = BenchmarkSupport.messages("room_general", batchSize, "Journal benchmark message");
+        databaseService.saveMessages(batch);
+        rows.messages += batchSize;
+    }
+}
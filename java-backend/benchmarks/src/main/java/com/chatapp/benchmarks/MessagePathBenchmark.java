@@ -0,0 +1,77 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.ChatClock;
+import com.chatapp.ChatMessage;
+import com.chatapp.ChatProtocol;
+import com.chatapp.ChatWebSocketHandler;
+import com.chatapp.ProtocolCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Allocation per handled chat message, meant to be run with -prof gc (gc.alloc.rate.norm is
+// bytes/op). handleMessage is the handler's per-message work: decode the frame, look up the
+// sender by session, stamp the message and encode the broadcast frame. The legacy variants
+// stamp with LocalDateTime.now() and format on every encode, as before ChatClock.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessagePathBenchmark {
+
+    private static final int SESSIONS = 10_000;
+
+    private final ProtocolCodec protocolCodec = new ProtocolCodec();
+    private final String payload = BenchmarkSupport.chatMessageFrame();
+    private final Map<String, ChatWebSocketHandler.User> sessionUsers = new ConcurrentHashMap<>();
+    private final String sessionId = "session-" + SESSIONS / 2;
+    private long seq;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < SESSIONS; i++) {
+            sessionUsers.put("session-" + i, new ChatWebSocketHandler.User("user_" + i, "user" + i, i % 2 == 0));
+        }
+    }
+
+    @Benchmark
+    public String timestampLegacy() {
+        return LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    @Benchmark
+    public String timestampCached() {
+        return ChatClock.format(ChatClock.now());
+    }
+
+    @Benchmark
+    public String handleMessageLegacy() throws Exception {
+        return handle(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public String handleMessage() throws Exception {
+        return handle(ChatClock.now());
+    }
+
+    private String handle(LocalDateTime timestamp) throws Exception {
+        ChatProtocol.SendMessage send = (ChatProtocol.SendMessage) protocolCodec.decode(payload);
+        ChatWebSocketHandler.User sender = sessionUsers.get(sessionId);
+        ChatMessage message = new ChatMessage(send.id(), "room_general", sender.username(), send.content(), timestamp, sender.isAnonymous());
+        return protocolCodec.encodeMessage(message, ++seq);
+    }
+}
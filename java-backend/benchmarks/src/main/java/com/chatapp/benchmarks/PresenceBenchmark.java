@@ -0,0 +1,62 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.ChatWebSocketHandler;
+import com.chatapp.PresenceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+// User join/leave against N users already online: the original CopyOnWriteArrayList of
+// User (equals on id, O(n) copy and remove) against PresenceService's keyed state.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PresenceBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int onlineUsers;
+
+    private List<ChatWebSocketHandler.User> userList;
+    private PresenceService presenceService;
+    private ChatWebSocketHandler.User probe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userList = new CopyOnWriteArrayList<>();
+        presenceService = new PresenceService();
+        for (int i = 0; i < onlineUsers; i++) {
+            ChatWebSocketHandler.User user = new ChatWebSocketHandler.User("user_" + i, "user" + i, i % 2 == 0);
+            userList.add(user);
+            presenceService.join(user);
+        }
+        probe = new ChatWebSocketHandler.User("user_probe", "probe", true);
+    }
+
+    @Benchmark
+    public boolean copyOnWriteListJoinLeave() {
+        userList.add(probe);
+        return userList.remove(probe);
+    }
+
+    @Benchmark
+    public int presenceServiceJoinLeave() {
+        presenceService.join(probe);
+        presenceService.leave(probe);
+        return presenceService.onlineCount();
+    }
+}
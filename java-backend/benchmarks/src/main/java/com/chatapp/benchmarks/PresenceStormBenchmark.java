@@ -0,0 +1,140 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.BroadcastEngine;
+import com.chatapp.ChatWebSocketHandler;
+import com.chatapp.OutboundFrame;
+import com.chatapp.PresenceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Presence bytes sent per join during a connect storm: users join one after another and
+// each new session also receives. The original handler broadcast user_joined carrying the
+// whole online list to every session; PresenceService sends the joiner one snapshot and
+// everyone one presence_delta per batch window, with joinsPerWindow joins in each window
+// (the original has no window, so it is the same at both settings). The aux counter
+// reports bytes per join. JMH sums it over measurement iterations, and the bytes are the
+// same every run, so one storm is measured; its time is only indicative.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PresenceStormBenchmark {
+
+    @Param({"100", "1000"})
+    public int users;
+
+    @Param({"1", "20"})
+    public int joinsPerWindow;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<ChatWebSocketHandler.User> joining;
+    private CountingBroadcastEngine broadcastEngine;
+    private PresenceService presenceService;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sent {
+        public long bytesPerJoin;
+    }
+
+    // Sizes the frames PresenceService hands over instead of delivering them
+    private static final class CountingBroadcastEngine extends BroadcastEngine {
+        private int sessions;
+
+        @Override
+        public int sessionCount() {
+            return sessions;
+        }
+
+        @Override
+        public void send(String sessionId, OutboundFrame frame) {
+        }
+
+        @Override
+        public void broadcast(OutboundFrame frame) {
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        joining = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            joining.add(new ChatWebSocketHandler.User("user_" + i, "user" + i, i % 2 == 0));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newPresence() {
+        broadcastEngine = new CountingBroadcastEngine();
+        presenceService = BenchmarkSupport.wire(new PresenceService(), "broadcastEngine", broadcastEngine);
+    }
+
+    // user_joined as the original handler built it. Its User also had a LocalDateTime
+    // joinTime, written here as the ISO string the Boot-configured mapper produces.
+    @Benchmark
+    public long userJoinedBroadcast(Sent sent) throws Exception {
+        List<Map<String, Object>> onlineUsers = new ArrayList<>(users);
+        String joinTime = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        long bytes = 0;
+        for (int i = 0; i < users; i++) {
+            ChatWebSocketHandler.User user = joining.get(i);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", user.id());
+            entry.put("username", user.username());
+            entry.put("anonymous", user.isAnonymous());
+            entry.put("joinTime", joinTime);
+            onlineUsers.add(entry);
+            String frame = objectMapper.writeValueAsString(Map.of(
+                "type", "user_joined",
+                "username", user.username(),
+                "users", onlineUsers,
+                "timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)));
+            bytes += (long) frame.getBytes(StandardCharsets.UTF_8).length * (i + 1);
+        }
+        sent.bytesPerJoin = bytes / users;
+        return bytes;
+    }
+
+    @Benchmark
+    public long snapshotAndDeltas(Sent sent) {
+        for (int i = 0; i < users; i++) {
+            broadcastEngine.sessions = i + 1;
+            presenceService.join(joining.get(i));
+            presenceService.sendSnapshot("session_" + i);
+            if ((i + 1) % joinsPerWindow == 0) {
+                flush();
+            }
+        }
+        flush();
+        sent.bytesPerJoin = presenceService.bytesSent() / users;
+        return presenceService.bytesSent();
+    }
+
+    // The batch window's tick
+    private void flush() {
+        ReflectionTestUtils.invokeMethod(presenceService, "flush");
+    }
+}
@@ -0,0 +1,96 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.ChatMessage;
+import com.chatapp.ChatProtocol;
+import com.chatapp.ProtocolCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// handleMessage parse/dispatch and response building: the original Map-based Jackson
+// path against the typed streaming codec. Run with -prof gc for allocations per op.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProtocolCodecBenchmark {
+
+    @Param({"user_join", "message", "typing_start"})
+    public String frameType;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ProtocolCodec protocolCodec = new ProtocolCodec();
+    private String payload;
+    private ChatMessage chatMessage;
+
+    @Setup
+    public void setUp() {
+        payload = switch (frameType) {
+            case "user_join" -> BenchmarkSupport.userJoinFrame();
+            case "message" -> BenchmarkSupport.chatMessageFrame();
+            default -> BenchmarkSupport.typingFrame();
+        };
+        chatMessage = new ChatMessage("msg_1712345678901", "room_general", "quiet_fox",
+            "Has anyone tried the new build yet? It seems a lot snappier.", LocalDateTime.now(), true);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object decodeMapBased() throws Exception {
+        Map<String, Object> data = objectMapper.readValue(payload, Map.class);
+        String type = (String) data.get("type");
+        switch (type) {
+            case "user_join": {
+                Map<String, Object> user = (Map<String, Object>) data.get("user");
+                return new Object[] {user.get("id"), user.get("username"), user.get("isAnonymous")};
+            }
+            case "message": {
+                Map<String, Object> message = (Map<String, Object>) data.get("message");
+                return new Object[] {message.get("id"), message.get("content"), message.get("timestamp")};
+            }
+            default:
+                return type;
+        }
+    }
+
+    @Benchmark
+    public ChatProtocol.ClientMessage decodeTyped() throws Exception {
+        return protocolCodec.decode(payload);
+    }
+
+    @Benchmark
+    public String encodeMapBased() throws Exception {
+        Map<String, Object> messageData = Map.of(
+            "id", chatMessage.id(),
+            "username", chatMessage.username(),
+            "content", chatMessage.content(),
+            "timestamp", chatMessage.timestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+            "isAnonymous", chatMessage.isAnonymous()
+        );
+        return objectMapper.writeValueAsString(Map.of(
+            "type", "message",
+            "roomId", chatMessage.roomId(),
+            "message", messageData
+        ));
+    }
+
+    @Benchmark
+    public String encodeTyped() throws Exception {
+        return protocolCodec.encodeMessage(chatMessage, 1);
+    }
+}
@@ -0,0 +1,87 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.ChatProtocol;
+import com.chatapp.ProtocolCodec;
+import com.chatapp.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// What flood protection adds to every inbound frame: the leading-type peek and a limiter
+// check, next to the full decode they run ahead of. "admitted" limits are high enough that
+// every check passes; "rejected" ones refuse almost every frame. The contended variant has
+// four threads hammering one session's bucket, a worst case the per-session WebSocket
+// threads never reach.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int SESSIONS = 10_000;
+
+    @Param({"admitted", "rejected"})
+    public String limits;
+
+    private final ProtocolCodec protocolCodec = new ProtocolCodec();
+    private final String payload = BenchmarkSupport.chatMessageFrame();
+    private final String[] sessionIds = new String[SESSIONS];
+    private final AtomicInteger next = new AtomicInteger();
+    private RateLimiter rateLimiter;
+
+    @Setup
+    public void setUp() {
+        boolean admitted = limits.equals("admitted");
+        rateLimiter = BenchmarkSupport.wire(new RateLimiter(), "enabled", true);
+        for (String bucket : new String[] {"message", "typing", "history", "other"}) {
+            BenchmarkSupport.wire(rateLimiter, bucket + "Rate", admitted ? 1e9 : 1.0);
+            BenchmarkSupport.wire(rateLimiter, bucket + "Burst", admitted ? Integer.MAX_VALUE : 1);
+        }
+        rateLimiter.start();
+        for (int i = 0; i < SESSIONS; i++) {
+            sessionIds[i] = "session-" + i;
+            rateLimiter.register(sessionIds[i]);
+        }
+    }
+
+    @Benchmark
+    public ChatProtocol.ClientMessage decode() throws Exception {
+        return protocolCodec.decode(payload);
+    }
+
+    @Benchmark
+    public String peekType() throws Exception {
+        return protocolCodec.peekType(payload);
+    }
+
+    @Benchmark
+    public boolean tryAcquire() {
+        String sessionId = sessionIds[(next.getAndIncrement() & Integer.MAX_VALUE) % SESSIONS];
+        return rateLimiter.tryAcquire(sessionId, RateLimiter.Bucket.MESSAGE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean tryAcquireContended() {
+        return rateLimiter.tryAcquire(sessionIds[0], RateLimiter.Bucket.MESSAGE);
+    }
+
+    @Benchmark
+    public boolean peekAndAcquire() throws Exception {
+        String sessionId = sessionIds[(next.getAndIncrement() & Integer.MAX_VALUE) % SESSIONS];
+        return rateLimiter.tryAcquire(sessionId, RateLimiter.Bucket.of(protocolCodec.peekType(payload)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.DatabaseService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// First 20-result page of a content search: the ranked GIN-indexed searchMessages against
+// the ILIKE '%term%' scan it replaces. Each message is eight words from a 5000-word
+// vocabulary with a skewed distribution, so w4000 matches about 0.06% of rows, w100 about
+// 0.7% and "flagged" none. The scan stops once it has a page, so it only reads every row
+// for terms that are rare or absent. Seeding 2M rows takes several minutes; run
+// -p rows=200000 for a quick check.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"2000000"})
+    public int rows;
+
+    @Param({"w4000", "w100", "flagged"})
+    public String term;
+
+    private EmbeddedPostgres postgres;
+    private HikariDataSource dataSource;
+    private DatabaseService databaseService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        postgres = BenchmarkSupport.startPostgres();
+        dataSource = BenchmarkSupport.pooledDataSource(postgres, 4);
+        databaseService = BenchmarkSupport.databaseService(dataSource);
+        // One second per row from 2024-01-01, spread over daily partitions
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        BenchmarkSupport.initializeSchema(databaseService, firstDay, firstDay.plusDays(rows / 86_400 + 1));
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            // The n > 0 reference makes the word subquery run once per row
+            stmt.execute("""
+                INSERT INTO messages (id, room_id, username, content, timestamp, is_anonymous)
+                SELECT 'msg_' || n, 'room_general', 'user_' || mod(n, 1000),
+                       (SELECT string_agg('w' || floor(5000 * power(random(), 3))::int, ' ')
+                        FROM generate_series(1, 8) WHERE n > 0),
+                       TIMESTAMP '2024-01-01' + n * INTERVAL '1 second', true
+                FROM generate_series(1, %d) AS n
+                """.formatted(rows));
+            stmt.execute("VACUUM ANALYZE messages");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dataSource.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public Object rankedSearch() throws Exception {
+        return databaseService.searchMessages(term, null, 0, PAGE_SIZE, 60_000);
+    }
+
+    // The moderator's fallback: a substring scan of every row, newest first
+    @Benchmark
+    public void likeScan(Blackhole blackhole) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT id, room_id, username, content, timestamp, is_anonymous FROM messages WHERE content ILIKE ? ORDER BY timestamp DESC LIMIT ?")) {
+            stmt.setString(1, "%" + term + "%");
+            stmt.setInt(2, PAGE_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    blackhole.consume(rs.getString(1));
+                }
+            }
+        }
+    }
+}
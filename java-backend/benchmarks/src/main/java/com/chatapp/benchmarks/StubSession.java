@@ -0,0 +1,136 @@
+package com.chatapp.benchmarks;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// In-memory WebSocketSession that counts delivered frames, optionally with a per-send delay
+final class StubSession implements WebSocketSession {
+
+    private final String id;
+    private final String acceptedProtocol;
+    private final long sendDelayNanos;
+    private final AtomicLong delivered;
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private volatile boolean open = true;
+
+    StubSession(String id, String acceptedProtocol, long sendDelayNanos) {
+        this(id, acceptedProtocol, sendDelayNanos, new AtomicLong());
+    }
+
+    // delivered is shared between sessions so a benchmark can wait for a whole fan-out
+    StubSession(String id, String acceptedProtocol, long sendDelayNanos, AtomicLong delivered) {
+        this.id = id;
+        this.acceptedProtocol = acceptedProtocol;
+        this.sendDelayNanos = sendDelayNanos;
+        this.delivered = delivered;
+    }
+
+    long framesReceived() {
+        return framesReceived.get();
+    }
+
+    long bytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (sendDelayNanos > 0) {
+            LockSupport.parkNanos(sendDelayNanos);
+        }
+        bytesReceived.addAndGet(message.getPayloadLength());
+        framesReceived.incrementAndGet();
+        delivered.incrementAndGet();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return URI.create("ws://localhost:8080/chat");
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return acceptedProtocol;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return List.of();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        open = false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.chatapp.benchmarks;
+
+import com.chatapp.ChatMessage;
+import com.chatapp.OutboundFrame;
+import com.chatapp.RecentMessageCache;
+import com.chatapp.WireFormat;
+import com.chatapp.DatabaseService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.WebSocketMessage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Encode time and wire size of a message_history frame in JSON and CBOR. The frame is
+// built fresh per op, as it is after every append; the aux counter reports bytes per frame.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"JSON", "CBOR"})
+    public WireFormat format;
+
+    @Param({"50", "100"})
+    public int historySize;
+
+    private RecentMessageCache cache;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireSize {
+        public long wireBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ChatMessage> history = BenchmarkSupport.messages("room_general", historySize,
+            "Has anyone tried the new build yet? It seems a lot snappier on my phone.");
+        DatabaseService preloaded = new DatabaseService() {
+            @Override
+            public List<ChatMessage> loadRecentMessages(String roomId, int limit) {
+                return history;
+            }
+        };
+        cache = new RecentMessageCache();
+        BenchmarkSupport.wire(cache, "capacity", historySize);
+        BenchmarkSupport.wire(cache, "databaseService", preloaded);
+    }
+
+    @Benchmark
+    public WebSocketMessage<?> encodeHistory(WireSize size) {
+        // Re-appending the newest message invalidates the cached frame, forcing a fresh encode
+        List<ChatMessage> snapshot = cache.snapshot("room_general");
+        cache.append(snapshot.get(snapshot.size() - 1));
+        OutboundFrame frame = cache.historyFrame("room_general");
+        size.wireBytes = frame.size(format);
+        return frame.message(format);
+    }
+}
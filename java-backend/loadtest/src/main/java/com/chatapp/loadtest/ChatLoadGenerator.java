@@ -0,0 +1,192 @@
+package com.chatapp.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// End-to-end WebSocket load generator. Without --url it starts the real server in-process
+// against an embedded PostgreSQL, so the numbers are reproducible on any machine.
+//
+//   java -jar chat-loadtest.jar --clients=2000 --rooms=4 --messages-per-client=20 --json
+//
+// --nodes=N starts N nodes on the cluster bus (--bus=postgres|loopback) and spreads clients
+// across them, so every delivery also checks cross-node fan-out and per-sender ordering.
+public class ChatLoadGenerator {
+
+    private final LoadTestOptions options;
+    private final List<URI> targets;
+    private final String threads;
+    private final Recorder deliveryLatency = new Recorder(3);
+    private final Recorder connectLatency = new Recorder(3);
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAccumulator lastDeliveryNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder outOfOrder = new LongAdder();
+
+    ChatLoadGenerator(LoadTestOptions options, List<URI> targets, String threads) {
+        this.options = options;
+        this.targets = targets;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        EmbeddedServer server = null;
+        List<URI> targets = options.urls();
+        if (targets.isEmpty()) {
+            server = EmbeddedServer.start(options.rooms(), options.nodes(), options.bus(), options.virtualThreads());
+            targets = server.chatUris();
+        }
+        String threads = server != null ? server.threads() : "remote";
+        try {
+            System.out.println("🚀 Load testing " + targets + " with " + options.clients() + " clients");
+            new ChatLoadGenerator(options, targets, threads).run().print(options.json());
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    LoadTestReport run() throws Exception {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<SimulatedClient> clients = connectAll(httpClient);
+            List<SimulatedClient> active = awaitJoined(clients);
+            List<SimulatedClient> reading = active.stream().filter(client -> !client.stalled()).toList();
+            Histogram connectHistogram = connectLatency.getIntervalHistogram();
+
+            // Drop anything recorded while clients were still joining
+            deliveryLatency.reset();
+            deliveries.reset();
+
+            long scriptStart = System.nanoTime();
+            CountDownLatch sent = runScripts(reading, scheduler);
+            sent.await();
+            long sendEnd = System.nanoTime();
+            Thread.sleep(options.drainMs());
+
+            LoadTestReport.Latency delivery = LoadTestReport.Latency.of(deliveryLatency.getIntervalHistogram());
+            long delivered = deliveries.sum();
+            long lastDelivery = Math.max(lastDeliveryNanos.get(), sendEnd);
+
+            for (SimulatedClient client : active) {
+                client.leave();
+            }
+            for (SimulatedClient client : active) {
+                client.sendsCompleted().orTimeout(5, TimeUnit.SECONDS).exceptionally(e -> null).join();
+            }
+
+            long messagesSent = (long) reading.size() * options.messagesPerClient();
+            double sendSeconds = (sendEnd - scriptStart) / 1e9;
+            return new LoadTestReport(
+                targets.size(),
+                threads,
+                options.clients(),
+                (int) connectHistogram.getTotalCount(),
+                active.size(),
+                active.size() - reading.size(),
+                errors.sum(),
+                messagesSent,
+                delivered,
+                expectedDeliveries(reading),
+                outOfOrder.sum(),
+                sendSeconds,
+                messagesSent / sendSeconds,
+                delivered / ((lastDelivery - scriptStart) / 1e9),
+                LoadTestReport.Latency.of(connectHistogram),
+                delivery
+            );
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Opens connections at --connect-rate per second to avoid measuring a SYN flood
+    private List<SimulatedClient> connectAll(HttpClient httpClient) {
+        List<SimulatedClient> clients = new ArrayList<>(options.clients());
+        long start = System.nanoTime();
+        long pacingNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(options.connectRate(), 1);
+        for (int i = 0; i < options.clients(); i++) {
+            long due = start + i * pacingNanos;
+            while (System.nanoTime() < due) {
+                LockSupport.parkNanos(due - System.nanoTime());
+            }
+            SimulatedClient client = new SimulatedClient(i, options.roomFor(i), options.stalled(i), deliveryLatency, deliveries,
+                lastDeliveryNanos, errors, outOfOrder);
+            long connectStart = System.nanoTime();
+            client.connect(httpClient, targets.get(i % targets.size())).whenComplete((ws, error) -> {
+                if (error == null) {
+                    connectLatency.recordValue((System.nanoTime() - connectStart) / 1000);
+                } else {
+                    errors.increment();
+                }
+            });
+            clients.add(client);
+        }
+        return clients;
+    }
+
+    private List<SimulatedClient> awaitJoined(List<SimulatedClient> clients) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        List<SimulatedClient> active = new ArrayList<>(clients.size());
+        for (SimulatedClient client : clients) {
+            try {
+                client.joined().get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                active.add(client);
+            } catch (Exception e) {
+                errors.increment();
+            }
+        }
+        return active;
+    }
+
+    // Each client sends its messages at --message-interval-ms with random jitter, each
+    // preceded by a typing_start when --typing is on
+    private CountDownLatch runScripts(List<SimulatedClient> active, ScheduledExecutorService scheduler) {
+        CountDownLatch sent = new CountDownLatch(active.size() * options.messagesPerClient());
+        long interval = options.messageIntervalMs();
+        for (SimulatedClient client : active) {
+            long offset = ThreadLocalRandom.current().nextLong(Math.max(interval, 1));
+            for (int m = 0; m < options.messagesPerClient(); m++) {
+                scheduler.schedule(() -> {
+                    if (options.typing()) {
+                        client.sendTyping();
+                    }
+                    client.sendMessage();
+                    sent.countDown();
+                }, offset + m * interval, TimeUnit.MILLISECONDS);
+            }
+        }
+        return sent;
+    }
+
+    // Every reading client receives every message sent to its room
+    private long expectedDeliveries(List<SimulatedClient> reading) {
+        Map<String, AtomicInteger> roomSizes = new HashMap<>();
+        for (SimulatedClient client : reading) {
+            roomSizes.computeIfAbsent(client.roomId(), id -> new AtomicInteger()).incrementAndGet();
+        }
+        long expected = 0;
+        for (AtomicInteger size : roomSizes.values()) {
+            expected += (long) size.get() * size.get() * options.messagesPerClient();
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,97 @@
+package com.chatapp.loadtest;
+
+import com.chatapp.ChatThreads;
+import com.chatapp.DatabaseService;
+import com.chatapp.SpringBootChatApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+// The real chat server, started in-process on random ports against an embedded PostgreSQL.
+// With several nodes, each is its own application context on the shared database, linked by
+// the configured cluster bus, so a multi-node cluster runs on one machine.
+final class EmbeddedServer implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final List<ConfigurableApplicationContext> nodes;
+
+    private EmbeddedServer(EmbeddedPostgres postgres, List<ConfigurableApplicationContext> nodes) {
+        this.postgres = postgres;
+        this.nodes = nodes;
+    }
+
+    static EmbeddedServer start(int rooms, int nodeCount, String bus, boolean virtualThreads) throws Exception {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        applySchema(postgres.getPostgresDatabase(), rooms);
+
+        List<ConfigurableApplicationContext> nodes = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            // Passed as command-line arguments so they override application.properties
+            nodes.add(new SpringApplicationBuilder(SpringBootChatApplication.class)
+                .run(
+                    "--server.port=0",
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=postgres",
+                    "--spring.datasource.hikari.register-mbeans=false",
+                    "--app.chat.cluster.bus=" + bus,
+                    "--app.chat.cluster.node-name=node" + i,
+                    "--spring.threads.virtual.enabled=" + virtualThreads,
+                    "--logging.level.org.springframework.web.socket=INFO",
+                    "--logging.level.org.hibernate.SQL=INFO",
+                    "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+                ));
+        }
+        return new EmbeddedServer(postgres, nodes);
+    }
+
+    private static void applySchema(DataSource dataSource, int rooms) throws Exception {
+        DatabaseService schema = new DatabaseService();
+        Field field = DatabaseService.class.getDeclaredField("dataSource");
+        field.setAccessible(true);
+        field.set(schema, dataSource);
+        schema.initializeDatabase();
+
+        String sql = "INSERT INTO chat_rooms (id, name) VALUES (?, ?) ON CONFLICT (id) DO NOTHING";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < rooms; i++) {
+                stmt.setString(1, "room_load_" + i);
+                stmt.setString(2, "Load Room " + i);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // The mode the nodes actually run in: virtual threads need a Java 21 runtime
+    String threads() {
+        return nodes.get(0).getBean(ChatThreads.class).isVirtual() ? "virtual" : "platform";
+    }
+
+    List<URI> chatUris() {
+        List<URI> uris = new ArrayList<>(nodes.size());
+        for (ConfigurableApplicationContext node : nodes) {
+            String port = node.getEnvironment().getProperty("local.server.port");
+            String contextPath = node.getEnvironment().getProperty("server.servlet.context-path", "");
+            // Raw WebSocket transport of the SockJS endpoint
+            uris.add(URI.create("ws://localhost:" + port + contextPath + "/chat/websocket"));
+        }
+        return uris;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (ConfigurableApplicationContext node : nodes) {
+            node.close();
+        }
+        postgres.close();
+    }
+}
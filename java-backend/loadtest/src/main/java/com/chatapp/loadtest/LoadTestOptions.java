@@ -0,0 +1,64 @@
+package com.chatapp.loadtest;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Command-line options, given as --name=value
+record LoadTestOptions(
+        List<URI> urls,
+        int nodes,
+        String bus,
+        boolean virtualThreads,
+        int clients,
+        int stalledClients,
+        int rooms,
+        int messagesPerClient,
+        long messageIntervalMs,
+        boolean typing,
+        int connectRate,
+        long drainMs,
+        boolean json) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(eq > 0 ? arg.substring(2, eq) : arg.substring(2), eq > 0 ? arg.substring(eq + 1) : "true");
+        }
+        // Several comma-separated URLs spread clients across the nodes of a running cluster
+        String url = values.get("url");
+        int nodes = Integer.parseInt(values.getOrDefault("nodes", "1"));
+        return new LoadTestOptions(
+            url != null ? Arrays.stream(url.split(",")).map(URI::create).toList() : List.of(),
+            nodes,
+            values.getOrDefault("bus", nodes > 1 ? "postgres" : "loopback"),
+            Boolean.parseBoolean(values.getOrDefault("virtual-threads", "false")),
+            Integer.parseInt(values.getOrDefault("clients", "1000")),
+            Integer.parseInt(values.getOrDefault("stalled-clients", "0")),
+            Integer.parseInt(values.getOrDefault("rooms", "1")),
+            Integer.parseInt(values.getOrDefault("messages-per-client", "20")),
+            Long.parseLong(values.getOrDefault("message-interval-ms", "500")),
+            Boolean.parseBoolean(values.getOrDefault("typing", "true")),
+            Integer.parseInt(values.getOrDefault("connect-rate", "500")),
+            Long.parseLong(values.getOrDefault("drain-ms", "3000")),
+            Boolean.parseBoolean(values.getOrDefault("json", "false"))
+        );
+    }
+
+    // The first stalledClients clients join and then stop reading, like a client on a dead
+    // network; the server should evict them without slowing delivery to the others
+    boolean stalled(int clientIndex) {
+        return clientIndex < stalledClients;
+    }
+
+    // Rooms must exist on the target server; the embedded server seeds room_load_N for rooms > 1
+    String roomFor(int clientIndex) {
+        return rooms <= 1 ? "room_general" : "room_load_" + (clientIndex % rooms);
+    }
+}
@@ -0,0 +1,62 @@
+package com.chatapp.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+// Summary of one load-test run; latencies are send-to-receive, in milliseconds
+record LoadTestReport(
+        int nodes,
+        String threads,
+        int clients,
+        int connected,
+        int joined,
+        int stalled,
+        long errors,
+        long messagesSent,
+        long deliveries,
+        long expectedDeliveries,
+        long outOfOrder,
+        double sendSeconds,
+        double messagesPerSecond,
+        double deliveriesPerSecond,
+        Latency connectLatency,
+        Latency deliveryLatency) {
+
+    record Latency(long count, double p50, double p90, double p99, double p999, double max, double mean) {
+
+        static Latency of(Histogram micros) {
+            return new Latency(
+                micros.getTotalCount(),
+                micros.getValueAtPercentile(50) / 1000.0,
+                micros.getValueAtPercentile(90) / 1000.0,
+                micros.getValueAtPercentile(99) / 1000.0,
+                micros.getValueAtPercentile(99.9) / 1000.0,
+                micros.getMaxValue() / 1000.0,
+                micros.getMean() / 1000.0
+            );
+        }
+
+        @Override
+        public String toString() {
+            return String.format("p50=%.2fms p90=%.2fms p99=%.2fms p999=%.2fms max=%.2fms (n=%d)",
+                p50, p90, p99, p999, max, count);
+        }
+    }
+
+    void print(boolean json) throws Exception {
+        if (json) {
+            System.out.println(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(this));
+            return;
+        }
+        System.out.println("📊 Load test summary");
+        System.out.printf("   nodes:        %d (%s threads)%n", nodes, threads);
+        System.out.printf("   clients:      %d requested, %d connected, %d joined, %d stalled, %d errors%n",
+            clients, connected, joined, stalled, errors);
+        System.out.printf("   messages:     %d sent in %.2fs (%.0f msg/s)%n", messagesSent, sendSeconds, messagesPerSecond);
+        System.out.printf("   deliveries:   %d of %d expected (%.0f deliveries/s), %d out of order%n",
+            deliveries, expectedDeliveries, deliveriesPerSecond, outOfOrder);
+        System.out.println("   connect:      " + connectLatency);
+        System.out.println("   delivery:     " + deliveryLatency);
+    }
+}
@@ -0,0 +1,160 @@
+package com.chatapp.loadtest;
+
+import org.HdrHistogram.Recorder;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// One scripted chat client: join, typing + messages, leave. Chat messages carry their sender,
+// sequence and send time in the content, so every delivery records send-to-receive latency
+// and each receiver checks that a sender's messages arrive in the order they were sent.
+final class SimulatedClient implements WebSocket.Listener {
+
+    private static final String MARKER = "\"content\":\"lt|";
+
+    private final int index;
+    private final String roomId;
+    private final boolean stalled;
+    private final Recorder latencyMicros;
+    private final LongAdder deliveries;
+    private final LongAccumulator lastDeliveryNanos;
+    private final LongAdder errors;
+    private final LongAdder outOfOrder;
+    // Last sequence seen per sender; onText calls are sequential per socket
+    private final Map<Integer, Integer> lastSequence = new HashMap<>();
+    private final CompletableFuture<Void> joined = new CompletableFuture<>();
+    private final StringBuilder partial = new StringBuilder();
+    private WebSocket socket;
+    private CompletableFuture<WebSocket> sendChain;
+    private int sequence;
+
+    SimulatedClient(int index, String roomId, boolean stalled, Recorder latencyMicros, LongAdder deliveries,
+                    LongAccumulator lastDeliveryNanos, LongAdder errors, LongAdder outOfOrder) {
+        this.index = index;
+        this.roomId = roomId;
+        this.stalled = stalled;
+        this.latencyMicros = latencyMicros;
+        this.deliveries = deliveries;
+        this.lastDeliveryNanos = lastDeliveryNanos;
+        this.errors = errors;
+        this.outOfOrder = outOfOrder;
+    }
+
+    String roomId() {
+        return roomId;
+    }
+
+    boolean stalled() {
+        return stalled;
+    }
+
+    CompletableFuture<WebSocket> connect(HttpClient client, URI uri) {
+        return client.newWebSocketBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .buildAsync(uri, this);
+    }
+
+    CompletableFuture<Void> joined() {
+        return joined;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        synchronized (this) {
+            socket = webSocket;
+            sendChain = CompletableFuture.completedFuture(webSocket);
+        }
+        send("{\"type\":\"user_join\",\"user\":{\"id\":\"load_" + index + "\",\"username\":\"load" + index
+            + "\",\"isAnonymous\":true},\"roomId\":\"" + roomId + "\"}");
+        webSocket.request(1);
+    }
+
+    void sendTyping() {
+        send("{\"type\":\"typing_start\"}");
+    }
+
+    void sendMessage() {
+        int seq = ++sequence;
+        send("{\"type\":\"message\",\"message\":{\"id\":\"load_" + index + "_" + seq + "\",\"content\":\"lt|"
+            + index + "|" + seq + "|" + System.nanoTime() + "\"}}");
+    }
+
+    void leave() {
+        send("{\"type\":\"user_leave\"}");
+        synchronized (this) {
+            sendChain = sendChain.thenCompose(ws -> ws.sendClose(WebSocket.NORMAL_CLOSURE, "done"));
+        }
+    }
+
+    CompletableFuture<WebSocket> sendsCompleted() {
+        synchronized (this) {
+            return sendChain;
+        }
+    }
+
+    // java.net.http.WebSocket allows one outstanding send, so sends are chained;
+    // a failed send is counted and the chain continues with the next frame
+    private synchronized void send(String frame) {
+        sendChain = sendChain
+            .thenCompose(ws -> ws.sendText(frame, true))
+            .handle((ws, error) -> {
+                if (error != null) {
+                    errors.increment();
+                }
+                return socket;
+            });
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            onFrame(partial.toString());
+            partial.setLength(0);
+        }
+        // A stalled client stops reading once joined, so the server's sends to it back up
+        if (!stalled || !joined.isDone()) {
+            webSocket.request(1);
+        }
+        return null;
+    }
+
+    private void onFrame(String frame) {
+        if (frame.startsWith("{\"type\":\"message\"")) {
+            int start = frame.indexOf(MARKER);
+            if (start < 0) {
+                return;
+            }
+            // content is lt|sender|seq|sentAt
+            int senderStart = start + MARKER.length();
+            int end = frame.indexOf('"', senderStart);
+            int seqStart = frame.indexOf('|', senderStart) + 1;
+            int sentAtStart = frame.indexOf('|', seqStart) + 1;
+            int sender = Integer.parseInt(frame, senderStart, seqStart - 1, 10);
+            int seq = Integer.parseInt(frame, seqStart, sentAtStart - 1, 10);
+            Integer previous = lastSequence.put(sender, seq);
+            if (previous != null && seq <= previous) {
+                outOfOrder.increment();
+            }
+            long now = System.nanoTime();
+            latencyMicros.recordValue(Math.max((now - Long.parseLong(frame, sentAtStart, end, 10)) / 1000, 0));
+            deliveries.increment();
+            lastDeliveryNanos.accumulate(now);
+        } else if (!joined.isDone() && frame.startsWith("{\"type\":\"room_joined\"")) {
+            joined.complete(null);
+        }
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        errors.increment();
+        joined.completeExceptionally(error);
+    }
+}
@@ -0,0 +1,134 @@
+package com.chatapp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// archive export, then import into the emptied table, through ArchiveTool as the command
+// line runs it. The table must come back identical, including content with tabs, newlines,
+// backslashes and non-ASCII text, and importing the same file again must add nothing.
+// archive.rows sets the size: small by default, two million with -Parchive-large.
+// Exporting messages older than the 30-day retention must leave them in place.
+class ArchiveRoundTripTest {
+
+    private static final int ROWS = Integer.getInteger("archive.rows", 10_000);
+    private static final int EXPIRED_ROWS = 100;
+
+    private static final String CHECKSUM = """
+        SELECT count(*), md5(string_agg(id || '|' || room_id || '|' || username || '|' || content || '|'
+                                        || timestamp || '|' || is_anonymous, ',' ORDER BY id))
+        FROM messages
+        """;
+
+    private EmbeddedPostgres postgres;
+    private DataSource dataSource;
+    private Path archive;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        dataSource = postgres.getPostgresDatabase();
+        DatabaseService databaseService = new DatabaseService();
+        ReflectionTestUtils.setField(databaseService, "dataSource", dataSource);
+        ReflectionTestUtils.setField(databaseService, "chatMetrics", new ChatMetrics(new SimpleMeterRegistry()));
+        databaseService.initializeDatabase();
+        MessagePartitions partitions = new MessagePartitions();
+        ReflectionTestUtils.setField(partitions, "databaseService", databaseService);
+        ReflectionTestUtils.setField(partitions, "interval", "daily");
+        partitions.ensurePartitions(LocalDate.now().minusDays(45), LocalDate.now().plusDays(1));
+        archive = Files.createTempFile("messages-archive", ".ndjson.gz");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Files.deleteIfExists(archive);
+        postgres.close();
+    }
+
+    @Test
+    void exportThenImportRestoresEveryMessage() throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                INSERT INTO messages (id, room_id, username, content, timestamp, is_anonymous)
+                SELECT 'msg_' || n, 'room_' || mod(n, 5), 'user_' || mod(n, 1000),
+                       CASE WHEN mod(n, 100) = 0
+                            THEN E'tab\\there\\nnew line, back\\\\slash \\r "quoted" \\u00e9 \\u6f22\\u5b57 \\U0001F600'
+                            ELSE 'message number ' || n || ' with some ordinary chat text in it' END,
+                       now() - n * (INTERVAL '20 days' / %d), mod(n, 2) = 0
+                FROM generate_series(1, %d) AS n
+                """.formatted(ROWS, ROWS));
+            String seeded = checksum(stmt);
+            assertThat(seeded).startsWith(ROWS + " ");
+
+            assertThat(archiveTool("export")).isZero();
+            stmt.execute("TRUNCATE messages");
+            assertThat(checksum(stmt)).startsWith("0 ");
+
+            assertThat(archiveTool("import")).isZero();
+            assertThat(checksum(stmt)).isEqualTo(seeded);
+
+            // Rows already present are skipped
+            assertThat(archiveTool("import")).isZero();
+            assertThat(checksum(stmt)).isEqualTo(seeded);
+        }
+    }
+
+    @Test
+    void exportLeavesExpiredMessagesInPlace() throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                INSERT INTO messages (id, room_id, username, content, timestamp, is_anonymous)
+                SELECT 'old_' || n, 'room_0', 'user_' || n, 'old message ' || n,
+                       now() - INTERVAL '40 days' + n * INTERVAL '1 minute', false
+                FROM generate_series(1, %d) AS n
+                """.formatted(EXPIRED_ROWS));
+            String seeded = checksum(stmt);
+
+            assertThat(archiveTool("export")).isZero();
+            assertThat(checksum(stmt)).isEqualTo(seeded);
+            assertThat(archiveLines()).isEqualTo(EXPIRED_ROWS);
+        }
+    }
+
+    private long archiveLines() throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archive)), StandardCharsets.UTF_8))) {
+            return reader.lines().count();
+        }
+    }
+
+    private int archiveTool(String operation) throws Exception {
+        return ArchiveTool.run(new String[] {
+            operation, archive.toString(),
+            "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+            "--spring.datasource.username=postgres",
+            "--spring.datasource.password=postgres",
+            "--spring.datasource.hikari.register-mbeans=false"
+        });
+    }
+
+    private static String checksum(Statement stmt) throws Exception {
+        try (ResultSet rs = stmt.executeQuery(CHECKSUM)) {
+            rs.next();
+            return rs.getLong(1) + " " + rs.getString(2);
+        }
+    }
+}
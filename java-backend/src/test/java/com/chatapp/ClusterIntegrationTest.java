@@ -0,0 +1,220 @@
+package com.chatapp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// Two server nodes on one embedded Postgres, linked by the loopback bus (contexts in one
+// JVM) or by LISTEN/NOTIFY. Two clients on each node share a room; one sender per node
+// posts a run of messages, and every client must get all of them with each sender's
+// messages in the order they were sent. Typing on one node must show on the other.
+class ClusterIntegrationTest {
+
+    private static final int NODES = 2;
+    private static final int MESSAGES_PER_SENDER = 100;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static EmbeddedPostgres postgres;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private final List<Client> clients = new ArrayList<>();
+
+    @BeforeAll
+    static void startPostgres() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws Exception {
+        postgres.close();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        for (Client client : clients) {
+            client.close();
+        }
+        for (ConfigurableApplicationContext node : nodes) {
+            node.close();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"loopback", "postgres"})
+    void deliversAcrossNodesInSenderOrder(String bus) throws Exception {
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(startNode(bus, i));
+        }
+        for (int i = 0; i < NODES * 2; i++) {
+            clients.add(Client.connect(httpClient, chatUri(nodes.get(i % NODES)), "user" + i));
+        }
+        for (Client client : clients) {
+            client.joined.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        }
+        // Each node has heard of every user, so the bus is up in both directions
+        await().atMost(TIMEOUT).until(() -> nodes.stream()
+            .allMatch(node -> node.getBean(PresenceService.class).onlineCount() == clients.size()));
+
+        // user0 is on node 0 and user1 on node 1
+        List<Client> senders = clients.subList(0, NODES);
+        for (int seq = 0; seq < MESSAGES_PER_SENDER; seq++) {
+            for (Client sender : senders) {
+                sender.sendMessage(seq);
+            }
+        }
+
+        List<String> expected = IntStream.range(0, MESSAGES_PER_SENDER).mapToObj(String::valueOf).toList();
+        for (Client receiver : clients) {
+            for (Client sender : senders) {
+                await().atMost(TIMEOUT).until(() -> receiver.contentsFrom(sender.username).size() >= MESSAGES_PER_SENDER);
+                assertThat(receiver.contentsFrom(sender.username))
+                    .as("%s receiving from %s over %s", receiver.username, sender.username, bus)
+                    .containsExactlyElementsOf(expected);
+            }
+        }
+
+        // user2 types on node 0; user3 on node 1 sees it
+        clients.get(2).send("{\"type\":\"typing_start\"}");
+        await().atMost(TIMEOUT).until(() -> clients.get(3).typers().contains("user2"));
+    }
+
+    private static ConfigurableApplicationContext startNode(String bus, int index) {
+        // Passed as command-line arguments so they override application.properties. The
+        // optional security starter is on the test classpath; as in the load test, it is off.
+        return new SpringApplicationBuilder(SpringBootChatApplication.class).run(
+            "--spring.autoconfigure.exclude="
+                + "org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration,"
+                + "org.springframework.boot.actuate.autoconfigure.security.servlet.ManagementWebSecurityAutoConfiguration",
+            "--server.port=0",
+            "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+            "--spring.datasource.username=postgres",
+            "--spring.datasource.password=postgres",
+            "--spring.datasource.hikari.register-mbeans=false",
+            "--app.chat.cluster.bus=" + bus,
+            "--app.chat.cluster.node-name=node" + index,
+            "--app.chat.rate-limit.enabled=false",
+            "--app.chat.warmup.iterations=100",
+            "--logging.level.org.springframework.web.socket=INFO",
+            "--logging.level.org.hibernate.SQL=INFO");
+    }
+
+    private static URI chatUri(ConfigurableApplicationContext node) {
+        String port = node.getEnvironment().getProperty("local.server.port");
+        String contextPath = node.getEnvironment().getProperty("server.servlet.context-path", "");
+        // Raw WebSocket transport of the SockJS endpoint
+        return URI.create("ws://localhost:" + port + contextPath + "/chat/websocket");
+    }
+
+    private static final class Client implements WebSocket.Listener {
+        private final String username;
+        private final CompletableFuture<Void> joined = new CompletableFuture<>();
+        private final List<JsonNode> frames = new ArrayList<>();
+        private final StringBuilder partial = new StringBuilder();
+        private CompletableFuture<WebSocket> sends;
+
+        private Client(String username) {
+            this.username = username;
+        }
+
+        static Client connect(HttpClient httpClient, URI uri, String username) throws Exception {
+            Client client = new Client(username);
+            WebSocket socket = httpClient.newWebSocketBuilder().buildAsync(uri, client).get();
+            client.sends = CompletableFuture.completedFuture(socket);
+            client.send("{\"type\":\"user_join\",\"user\":{\"id\":\"id_" + username + "\",\"username\":\"" + username
+                + "\",\"isAnonymous\":true},\"roomId\":\"" + RoomRegistry.DEFAULT_ROOM + "\"}");
+            return client;
+        }
+
+        void sendMessage(int seq) {
+            send("{\"type\":\"message\",\"message\":{\"id\":\"" + username + "_" + seq + "\",\"content\":\"" + seq + "\"}}");
+        }
+
+        // java.net.http.WebSocket allows one outstanding send, so sends are chained
+        synchronized void send(String frame) {
+            sends = sends.thenCompose(ws -> ws.sendText(frame, true));
+        }
+
+        List<String> contentsFrom(String sender) {
+            List<String> contents = new ArrayList<>();
+            synchronized (frames) {
+                for (JsonNode frame : frames) {
+                    if (frame.path("type").asText().equals("message")
+                            && frame.path("message").path("username").asText().equals(sender)) {
+                        contents.add(frame.path("message").path("content").asText());
+                    }
+                }
+            }
+            return contents;
+        }
+
+        List<String> typers() {
+            List<String> typers = new ArrayList<>();
+            synchronized (frames) {
+                for (JsonNode frame : frames) {
+                    if (frame.path("type").asText().equals("typing_users")) {
+                        typers.clear();
+                        frame.path("users").forEach(user -> typers.add(user.asText()));
+                    }
+                }
+            }
+            return typers;
+        }
+
+        void close() {
+            sends.thenCompose(ws -> ws.sendClose(WebSocket.NORMAL_CLOSURE, "done"));
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                try {
+                    JsonNode frame = MAPPER.readTree(partial.toString());
+                    synchronized (frames) {
+                        frames.add(frame);
+                    }
+                    if (frame.path("type").asText().equals("room_joined")) {
+                        joined.complete(null);
+                    }
+                } catch (Exception e) {
+                    joined.completeExceptionally(e);
+                }
+                partial.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            joined.completeExceptionally(error);
+        }
+    }
+}
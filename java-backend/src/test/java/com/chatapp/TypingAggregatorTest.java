@@ -0,0 +1,156 @@
+package com.chatapp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Bursts of typing_start frames against the typing_users frames and cluster events they
+// cause. Most tests drive the tick by hand, so each call to tick() is exactly one interval.
+class TypingAggregatorTest {
+
+    private static final int TYPERS = 200;
+    private static final int FRAMES_PER_TYPER = 50;
+    private static final long EMIT_INTERVAL_MS = 50;
+
+    private final BroadcastEngine broadcastEngine = mock(BroadcastEngine.class);
+    private final ClusterBus clusterBus = mock(ClusterBus.class);
+    private final ChatThreads chatThreads = new ChatThreads(false);
+    private TypingAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        RoomRegistry roomRegistry = mock(RoomRegistry.class);
+        when(roomRegistry.members(anyString())).thenReturn(Set.of("session-1", "session-2"));
+        aggregator = new TypingAggregator();
+        ReflectionTestUtils.setField(aggregator, "emitIntervalMs", EMIT_INTERVAL_MS);
+        ReflectionTestUtils.setField(aggregator, "expiryMs", 5000L);
+        ReflectionTestUtils.setField(aggregator, "broadcastEngine", broadcastEngine);
+        ReflectionTestUtils.setField(aggregator, "roomRegistry", roomRegistry);
+        ReflectionTestUtils.setField(aggregator, "chatThreads", chatThreads);
+        ReflectionTestUtils.setField(aggregator, "clusterBus", clusterBus);
+    }
+
+    @AfterEach
+    void tearDown() {
+        chatThreads.stop();
+    }
+
+    @Test
+    void burstOfTypingStartsIsOneFramePerInterval() {
+        sendTypingStarts("room_a");
+        tick();
+        assertThat(aggregator.framesEmitted()).isEqualTo(1);
+        assertThat(lastFrame()).contains("\"user0\"", "\"user199\"");
+
+        // The same people still typing: nothing new to send
+        sendTypingStarts("room_a");
+        tick();
+        tick();
+        assertThat(aggregator.framesEmitted()).isEqualTo(1);
+    }
+
+    @Test
+    void eachRoomGetsOneFramePerInterval() {
+        sendTypingStarts("room_a");
+        sendTypingStarts("room_b");
+        tick();
+        assertThat(aggregator.framesEmitted()).isEqualTo(2);
+    }
+
+    @Test
+    void flappingWithinAnIntervalSendsNothing() {
+        for (int i = 0; i < FRAMES_PER_TYPER; i++) {
+            aggregator.typingStarted("room_a", "user0");
+            aggregator.typingStopped("room_a", "user0");
+        }
+        tick();
+        assertThat(aggregator.framesEmitted()).isZero();
+    }
+
+    @Test
+    void stopsAreSentAsTheShrunkSet() {
+        aggregator.typingStarted("room_a", "user0");
+        aggregator.typingStarted("room_a", "user1");
+        tick();
+        aggregator.typingStopped("room_a", "user0");
+        tick();
+        assertThat(aggregator.framesEmitted()).isEqualTo(2);
+        assertThat(lastFrame()).contains("\"users\":[\"user1\"]");
+
+        aggregator.typingStopped("room_a", "user1");
+        tick();
+        assertThat(aggregator.framesEmitted()).isEqualTo(3);
+        assertThat(lastFrame()).contains("\"users\":[]");
+    }
+
+    @Test
+    void burstIsOneClusterEventPerInterval() {
+        sendTypingStarts("room_a");
+        tick();
+        tick();
+        ArgumentCaptor<ClusterProtocol.Event> events = ArgumentCaptor.forClass(ClusterProtocol.Event.class);
+        verify(clusterBus, times(1)).publish(events.capture());
+        ClusterProtocol.TypingState state = (ClusterProtocol.TypingState) events.getValue();
+        assertThat(state.roomId()).isEqualTo("room_a");
+        assertThat(state.usernames()).hasSize(50);
+    }
+
+    @Test
+    void remoteTypersAreMergedIntoTheFrame() {
+        aggregator.typingStarted("room_a", "local");
+        aggregator.applyRemote("node-b", "room_a", List.of("remote"));
+        tick();
+        assertThat(aggregator.framesEmitted()).isEqualTo(1);
+        assertThat(lastFrame()).contains("\"users\":[\"local\",\"remote\"]");
+
+        aggregator.dropRemote("node-b");
+        tick();
+        assertThat(lastFrame()).contains("\"users\":[\"local\"]");
+    }
+
+    @Test
+    void scheduledTickSendsOneFramePerChange() throws InterruptedException {
+        aggregator.start();
+        try {
+            sendTypingStarts("room_a");
+            await().atMost(Duration.ofSeconds(5)).until(() -> aggregator.framesEmitted() == 1);
+            Thread.sleep(EMIT_INTERVAL_MS * 5);
+            assertThat(aggregator.framesEmitted()).isEqualTo(1);
+        } finally {
+            aggregator.stop();
+        }
+    }
+
+    private void sendTypingStarts(String roomId) {
+        for (int frame = 0; frame < FRAMES_PER_TYPER; frame++) {
+            for (int typer = 0; typer < TYPERS; typer++) {
+                aggregator.typingStarted(roomId, "user" + typer);
+            }
+        }
+    }
+
+    private void tick() {
+        ReflectionTestUtils.invokeMethod(aggregator, "emit");
+    }
+
+    private String lastFrame() {
+        ArgumentCaptor<OutboundFrame> frames = ArgumentCaptor.forClass(OutboundFrame.class);
+        verify(broadcastEngine, times((int) aggregator.framesEmitted())).broadcastTo(any(), frames.capture(), isNull());
+        return (String) frames.getValue().message(WireFormat.JSON).getPayload();
+    }
+}
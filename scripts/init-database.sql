@@ -7,15 +7,27 @@ CREATE TABLE IF NOT EXISTS users (
     last_active TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Create messages table
+-- Create messages table, partitioned by timestamp. The server creates partitions ahead of
+-- time and drops expired ones (app.chat.partitions.*, app.chat.cleanup-days)
 CREATE TABLE IF NOT EXISTS messages (
-    id VARCHAR(255) PRIMARY KEY,
+    id VARCHAR(255) NOT NULL,
     username VARCHAR(50) NOT NULL,
     content TEXT NOT NULL,
-    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     is_anonymous BOOLEAN DEFAULT FALSE,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    room_id VARCHAR(255) NOT NULL DEFAULT 'room_general',
+    -- Full-text search vector, kept up to date by PostgreSQL as rows are written
+    content_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('english', content)) STORED,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Today's partition, for the welcome messages below
+DO $$
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF messages FOR VALUES FROM (%L) TO (%L)',
+                   'messages_p' || to_char(CURRENT_DATE, 'YYYYMMDD'), CURRENT_DATE, CURRENT_DATE + 1);
+END $$;
 
 -- Create chat_rooms table for future expansion
 CREATE TABLE IF NOT EXISTS chat_rooms (
@@ -36,9 +48,11 @@ CREATE TABLE IF NOT EXISTS user_sessions (
 );
 
 -- Create indexes for better performance
+CREATE INDEX IF NOT EXISTS idx_messages_room_timestamp_id ON messages(room_id, timestamp, id);
 CREATE INDEX IF NOT EXISTS idx_messages_timestamp ON messages(timestamp);
 CREATE INDEX IF NOT EXISTS idx_users_last_active ON users(last_active);
 CREATE INDEX IF NOT EXISTS idx_messages_username ON messages(username);
+CREATE INDEX IF NOT EXISTS idx_messages_content_tsv ON messages USING GIN (content_tsv);
 CREATE INDEX IF NOT EXISTS idx_user_sessions_token ON user_sessions(session_token);
 CREATE INDEX IF NOT EXISTS idx_user_sessions_expires ON user_sessions(expires_at);
 